@@ -0,0 +1,69 @@
+package com.simpleshop.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.simpleshop.util.CacheStatistics;
+import com.simpleshop.util.TokenHash;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Instant;
+import java.util.Map;
+
+// Remembers successfully validated tokens until their exp, keyed by SHA-256 of the token,
+// so a token the SPA sends again skips parsing, signature verification and validators.
+// Failures are never cached. Revocation is checked per request after authentication
+// (RevocationFilter), so a cached token of a blocked user is still denied.
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> cache;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maxSize) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Jwt>() {
+                    @Override
+                    public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+                        Instant exp = jwt.getExpiresAt();
+                        if (exp == null) return 0;
+                        return Math.max(0, exp.toEpochMilli() - System.currentTimeMillis()) * 1_000_000;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = TokenHash.sha256(token);
+        Jwt cached = cache.getIfPresent(key);
+        if (cached != null) return cached;
+
+        // Not single-flight on purpose: a failing decode must throw to every caller
+        Jwt jwt = delegate.decode(token);
+        cache.put(key, jwt);
+        return jwt;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        return CacheStatistics.describe(cache);
+    }
+}
@@ -0,0 +1,183 @@
+package com.simpleshop.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simpleshop.constants.ResponseMessages;
+import com.simpleshop.response.CannedResponse;
+import com.simpleshop.util.GradientConcurrencyLimiter;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Sheds load with 503 before a request queues behind a slow Keycloak or database.
+// Each route group has its own adaptive limit (GradientConcurrencyLimiter), measured
+// from admission to the end of the response, including async (CompletableFuture) ones.
+// Reads, token verification and logouts may use the whole limit; logins and customer
+// writes only a share of it, so they are shed first. Streaming responses (NDJSON
+// listings) last as long as the client reads, which says nothing about backend latency:
+// they get their own fixed cap and never feed the adaptive limits. Runs before the
+// security chain, so a rejected request costs no token decoding.
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter implements Ordered {
+
+    public enum RouteGroup {
+        AUTH,
+        CUSTOMER_READ,
+        CUSTOMER_WRITE,
+        STREAM
+    }
+
+    private final boolean enabled;
+    private final String authBase;
+    private final String customerBase;
+    private final ObjectMapper objectMapper;
+    private final Map<RouteGroup, GradientConcurrencyLimiter> limiters = new EnumMap<>(RouteGroup.class);
+
+    public ConcurrencyLimitFilter(ObjectMapper objectMapper,
+                                  @Value("${concurrency-limit.enabled:true}") boolean enabled,
+                                  @Value("${api.auth.base:/auth}") String authBase,
+                                  @Value("${api.customer.base:/api/customers}") String customerBase,
+                                  @Value("${concurrency-limit.initial-limit:20}") int initialLimit,
+                                  @Value("${concurrency-limit.min-limit:4}") int minLimit,
+                                  @Value("${concurrency-limit.max-limit:500}") int maxLimit,
+                                  @Value("${concurrency-limit.low-priority-share:0.8}") double lowPriorityShare,
+                                  @Value("${concurrency-limit.stream.max-concurrent:8}") int maxStreams) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.authBase = authBase;
+        this.customerBase = customerBase;
+        for (RouteGroup group : RouteGroup.values()) {
+            limiters.put(group, group == RouteGroup.STREAM
+                    // min = max: a plain cap that no sample can move
+                    ? new GradientConcurrencyLimiter(maxStreams, maxStreams, maxStreams, 1.0)
+                    : new GradientConcurrencyLimiter(initialLimit, minLimit, maxLimit, lowPriorityShare));
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return SecurityProperties.DEFAULT_FILTER_ORDER - 10;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || groupOf(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        RouteGroup group = groupOf(request);
+        GradientConcurrencyLimiter limiter = limiters.get(group);
+        int inFlight = limiter.tryAcquire(isHighPriority(request));
+        boolean sampled = group != RouteGroup.STREAM;
+
+        if (inFlight < 0) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(CannedResponse.failure(ResponseMessages.SERVICE_OVERLOADED).json(objectMapper));
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            chain.doFilter(request, response);
+            completed = true;
+        } finally {
+            if (completed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(limiter, inFlight, start, sampled));
+            } else {
+                limiter.release(inFlight, completed && sampled ? System.nanoTime() - start : -1);
+            }
+        }
+    }
+
+    private RouteGroup groupOf(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+
+        if (path.startsWith(authBase)) return RouteGroup.AUTH;
+        if (path.startsWith(customerBase)) {
+            if (path.endsWith("/stream")) return RouteGroup.STREAM;
+            String method = request.getMethod();
+            return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)
+                    ? RouteGroup.CUSTOMER_READ
+                    : RouteGroup.CUSTOMER_WRITE;
+        }
+        return null;
+    }
+
+    // Logins (a password hash in Keycloak) and writes give way to everything else
+    private boolean isHighPriority(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith(authBase)) return !path.endsWith("/login");
+        return HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        limiters.forEach((group, limiter) -> out.put(group.name().toLowerCase(), limiter.stats()));
+        return out;
+    }
+
+    // The async dispatch that writes the response is not filtered again, so the slot
+    // is given back when the async request ends, whichever way it ends
+    private static final class ReleaseOnComplete implements AsyncListener {
+
+        private final GradientConcurrencyLimiter limiter;
+        private final int inFlight;
+        private final long start;
+        private final boolean sampled;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleaseOnComplete(GradientConcurrencyLimiter limiter, int inFlight, long start, boolean sampled) {
+            this.limiter = limiter;
+            this.inFlight = inFlight;
+            this.start = start;
+            this.sampled = sampled;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(sampled ? System.nanoTime() - start : -1);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release(sampled ? System.nanoTime() - start : -1);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release(-1);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void release(long rttNanos) {
+            if (released.compareAndSet(false, true)) limiter.release(inFlight, rttNanos);
+        }
+    }
+}
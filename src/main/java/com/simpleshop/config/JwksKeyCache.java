@@ -0,0 +1,107 @@
+package com.simpleshop.config;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Realm signing keys fetched from Keycloak's certs endpoint and kept in memory.
+// The set is refreshed when it gets old, or early when a token carries a kid we
+// have not seen (key rotation), but never more than once per min-refresh-interval.
+@Component
+public class JwksKeyCache implements JWKSource<SecurityContext> {
+
+    private final RestTemplate restTemplate;
+    private final String jwkSetUri;
+    private final long ttlMillis;
+    private final long minRefreshIntervalMillis;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile JWKSet keys = new JWKSet();
+    private volatile long fetchedAt = 0L;
+    private long lastAttemptAt = 0L;
+
+    public JwksKeyCache(RestTemplate restTemplate,
+                        KeycloakProperties props,
+                        @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri:}") String jwkSetUri,
+                        @Value("${auth.jwks.ttl-seconds:600}") long ttlSeconds,
+                        @Value("${auth.jwks.min-refresh-interval-seconds:30}") long minRefreshIntervalSeconds) {
+        this.restTemplate = restTemplate;
+        this.jwkSetUri = jwkSetUri.isBlank()
+                ? props.getServerUrl() + "/realms/" + props.getRealm() + "/protocol/openid-connect/certs"
+                : jwkSetUri;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.minRefreshIntervalMillis = minRefreshIntervalSeconds * 1000;
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector selector, SecurityContext context) throws KeySourceException {
+        if (isStale()) {
+            refresh();
+        }
+
+        List<JWK> matches = selector.select(keys);
+        if (matches.isEmpty() && refresh()) {
+            // Unknown kid: the realm may have rotated its keys since the last fetch
+            matches = selector.select(keys);
+        }
+        return matches;
+    }
+
+    // True if the kid is in the current key set, refreshing once if it is not
+    public boolean knowsKey(String kid) throws KeySourceException {
+        if (kid == null) return false;
+        if (isStale()) refresh();
+        if (keys.getKeyByKeyId(kid) != null) return true;
+        return refresh() && keys.getKeyByKeyId(kid) != null;
+    }
+
+    private boolean isStale() {
+        return System.currentTimeMillis() - fetchedAt > ttlMillis;
+    }
+
+    // Returns true if a new key set was actually loaded
+    private boolean refresh() throws KeySourceException {
+        long seenFetchedAt = fetchedAt;
+
+        refreshLock.lock();
+        try {
+            // Another thread refreshed while we were waiting for the lock
+            if (fetchedAt != seenFetchedAt) return true;
+
+            long now = System.currentTimeMillis();
+            if (now - lastAttemptAt < minRefreshIntervalMillis) {
+                if (keys.getKeys().isEmpty()) {
+                    throw new RemoteKeySourceException("JWK set from " + jwkSetUri + " is not available yet", null);
+                }
+                return false;
+            }
+            lastAttemptAt = now;
+
+            String body = restTemplate.getForObject(jwkSetUri, String.class);
+            keys = JWKSet.parse(body);
+            fetchedAt = now;
+            return true;
+
+        } catch (KeySourceException e) {
+            throw e;
+        } catch (Exception e) {
+            // Keep serving the previous keys; the decoder reports a remote key error
+            if (keys.getKeys().isEmpty()) {
+                throw new RemoteKeySourceException("Couldn't retrieve JWK set from " + jwkSetUri, e);
+            }
+            return false;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+}
@@ -1,20 +1,45 @@
 package com.simpleshop.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.simpleshop.util.CacheStatistics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Authorities are mapped once per decoded token. CachingJwtDecoder hands back the same Jwt
+// instance for a repeated token, so the cache is keyed by identity (weak keys) and entries
+// go away together with the decoder's. The authentication token itself is mutable and
+// is built fresh for every request.
+@Component
 public class JwtAuthConverter implements Converter<Jwt, AbstractAuthenticationToken> {
 
-    private final JwtAuthenticationConverter delegate = new JwtAuthenticationConverter();
+    private final KeycloakRoleConverter roleConverter = new KeycloakRoleConverter();
+    private final Cache<Jwt, Collection<GrantedAuthority>> authorities;
 
-    public JwtAuthConverter() {
-        delegate.setJwtGrantedAuthoritiesConverter(new KeycloakRoleConverter());
+    public JwtAuthConverter(@Value("${auth.jwt.cache.max-size:10000}") long maxSize) {
+        this.authorities = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
     }
 
     @Override
     public AbstractAuthenticationToken convert(Jwt jwt) {
-        return delegate.convert(jwt);
+        Collection<GrantedAuthority> granted = authorities.get(jwt, j -> List.copyOf(roleConverter.convert(j)));
+        return new JwtAuthenticationToken(jwt, granted, jwt.getSubject());
+    }
+
+    public Map<String, Object> stats() {
+        return CacheStatistics.describe(authorities);
     }
 }
@@ -0,0 +1,44 @@
+package com.simpleshop.config;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.util.Set;
+
+// One decoder for the resource server and for /auth/verify, both backed by the
+// cached realm key set instead of a per-call round trip to Keycloak.
+// Validated tokens are kept until exp (auth.jwt.cache.max-size entries).
+@Configuration
+public class JwtDecoderConfig {
+
+    @Bean
+    public CachingJwtDecoder jwtDecoder(JwksKeyCache jwksKeyCache,
+                                        KeycloakProperties props,
+                                        @Value("${auth.jwt.issuer:${spring.security.oauth2.resourceserver.jwt.issuer-uri:}}") String issuerUri,
+                                        @Value("${auth.jwt.cache.max-size:10000}") long cacheMaxSize) {
+
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(
+                Set.of(JWSAlgorithm.RS256, JWSAlgorithm.RS384, JWSAlgorithm.RS512,
+                        JWSAlgorithm.PS256, JWSAlgorithm.ES256),
+                jwksKeyCache));
+        // Expiry and issuer are checked by the Spring validators below
+        processor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+
+        String issuer = issuerUri.isBlank()
+                ? props.getServerUrl() + "/realms/" + props.getRealm()
+                : issuerUri;
+
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuer));
+        return new CachingJwtDecoder(decoder, cacheMaxSize);
+    }
+}
@@ -1,12 +1,17 @@
 package com.simpleshop.config;
 
+import jakarta.ws.rs.client.ClientBuilder;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
 import org.keycloak.OAuth2Constants;
+import org.keycloak.admin.client.JacksonProvider;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.KeycloakBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class KeycloakConfig {
 
@@ -25,6 +30,23 @@ public class KeycloakConfig {
     @Value("${keycloak.admin.password}")
     private String adminPass;
 
+    // The admin client's own connection pool. The library default of 10 is less than a
+    // bulk fan-out (customer.bulk.keycloak-concurrency, 8) plus the single-customer calls
+    // next to it. With virtual threads this, not the servlet thread pool, caps concurrent
+    // admin calls.
+    @Value("${keycloak.admin.connection-pool-size:20}")
+    private int connectionPoolSize;
+
+    @Value("${keycloak.admin.connection-checkout-timeout-ms:5000}")
+    private long connectionCheckoutTimeoutMillis;
+
+    // Without these a dead Keycloak holds callers for the socket defaults (effectively forever)
+    @Value("${keycloak.admin.connect-timeout-ms:2000}")
+    private long connectTimeoutMillis;
+
+    @Value("${keycloak.admin.read-timeout-ms:5000}")
+    private long readTimeoutMillis;
+
     @Bean
     public Keycloak keycloakAdminClient() {
         return KeycloakBuilder.builder()
@@ -34,6 +56,14 @@ public class KeycloakConfig {
                 .username(adminUser)
                 .password(adminPass)
                 .grantType(OAuth2Constants.PASSWORD)
+                .resteasyClient(((ResteasyClientBuilder) ClientBuilder.newBuilder())
+                        .connectionPoolSize(connectionPoolSize)
+                        .maxPooledPerRoute(connectionPoolSize)
+                        .connectionCheckoutTimeout(connectionCheckoutTimeoutMillis, TimeUnit.MILLISECONDS)
+                        .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                        .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                        .register(JacksonProvider.class, 100)
+                        .build())
                 .build();
     }
 
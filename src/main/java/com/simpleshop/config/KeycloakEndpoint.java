@@ -0,0 +1,22 @@
+package com.simpleshop.config;
+
+import java.net.URI;
+
+// The Keycloak OIDC endpoints we call, used to pick timeouts and to label latency stats
+public enum KeycloakEndpoint {
+    TOKEN,
+    INTROSPECT,
+    LOGOUT,
+    CERTS,
+    OTHER;
+
+    public static KeycloakEndpoint of(URI uri) {
+        String path = uri.getPath();
+        if (path == null) return OTHER;
+        if (path.endsWith("/token/introspect")) return INTROSPECT;
+        if (path.endsWith("/token")) return TOKEN;
+        if (path.endsWith("/logout")) return LOGOUT;
+        if (path.endsWith("/certs")) return CERTS;
+        return OTHER;
+    }
+}
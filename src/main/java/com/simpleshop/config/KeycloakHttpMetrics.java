@@ -0,0 +1,73 @@
+package com.simpleshop.config;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-endpoint call counts and latency for outbound Keycloak HTTP calls.
+// Latency covers the exchange up to the response headers.
+public class KeycloakHttpMetrics implements ClientHttpRequestInterceptor {
+
+    private final Map<KeycloakEndpoint, EndpointStats> stats = new EnumMap<>(KeycloakEndpoint.class);
+
+    public KeycloakHttpMetrics() {
+        for (KeycloakEndpoint endpoint : KeycloakEndpoint.values()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            failed = response.getStatusCode().is5xxServerError();
+            return response;
+        } finally {
+            record(KeycloakEndpoint.of(request.getURI()), System.nanoTime() - start, failed);
+        }
+    }
+
+    // For calls that do not go through the RestTemplate (the async client)
+    public void record(KeycloakEndpoint endpoint, long elapsedNanos, boolean failed) {
+        stats.get(endpoint).record(elapsedNanos, failed);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        stats.forEach((endpoint, s) -> {
+            long calls = s.calls.sum();
+            if (calls == 0) return;
+            out.put(endpoint.name().toLowerCase(), Map.of(
+                    "calls", calls,
+                    "errors", s.errors.sum(),
+                    "avgMillis", s.totalNanos.sum() / calls / 1_000_000.0,
+                    "maxMillis", s.maxNanos.get() / 1_000_000.0
+            ));
+        });
+        return out;
+    }
+
+    private static final class EndpointStats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long elapsed, boolean failed) {
+            calls.increment();
+            totalNanos.add(elapsed);
+            if (failed) errors.increment();
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.simpleshop.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Transport settings for the clients that talk to Keycloak's OIDC endpoints.
+// Timeouts are in milliseconds. connect-timeout applies per connection (pooled connections
+// are shared by all endpoints); read-timeout (no data for that long) and total-timeout
+// (pool wait, connect and the whole response together) can be set per endpoint, e.g.
+// keycloak.http.endpoints.introspect.read-timeout=1500
+@Component
+@ConfigurationProperties(prefix = "keycloak.http")
+public class KeycloakHttpProperties {
+
+    // "apache" (pooled HTTP/1.1) or "jdk" (java.net.http, allows HTTP/2)
+    private String client = "apache";
+    private boolean http2 = false;
+
+    private int maxTotal = 100;
+    private int maxPerRoute = 50;
+    private int poolAcquireTimeout = 1000;
+    private int connectTimeout = 2000;
+    private int readTimeout = 5000;
+    private int totalTimeout = 8000;
+    private int idleEvictSeconds = 30;
+    private int connectionTtlSeconds = 300;
+    // Event-loop threads of the non-blocking client used by KeycloakAuthService
+    private int ioThreads = Runtime.getRuntime().availableProcessors();
+
+    private Map<KeycloakEndpoint, Timeouts> endpoints = new EnumMap<>(KeycloakEndpoint.class);
+
+    public String getClient() { return client; }
+    public void setClient(String client) { this.client = client; }
+
+    public boolean isHttp2() { return http2; }
+    public void setHttp2(boolean http2) { this.http2 = http2; }
+
+    public int getMaxTotal() { return maxTotal; }
+    public void setMaxTotal(int maxTotal) { this.maxTotal = maxTotal; }
+
+    public int getMaxPerRoute() { return maxPerRoute; }
+    public void setMaxPerRoute(int maxPerRoute) { this.maxPerRoute = maxPerRoute; }
+
+    public int getPoolAcquireTimeout() { return poolAcquireTimeout; }
+    public void setPoolAcquireTimeout(int poolAcquireTimeout) { this.poolAcquireTimeout = poolAcquireTimeout; }
+
+    public int getConnectTimeout() { return connectTimeout; }
+    public void setConnectTimeout(int connectTimeout) { this.connectTimeout = connectTimeout; }
+
+    public int getReadTimeout() { return readTimeout; }
+    public void setReadTimeout(int readTimeout) { this.readTimeout = readTimeout; }
+
+    public int getTotalTimeout() { return totalTimeout; }
+    public void setTotalTimeout(int totalTimeout) { this.totalTimeout = totalTimeout; }
+
+    public int getIdleEvictSeconds() { return idleEvictSeconds; }
+    public void setIdleEvictSeconds(int idleEvictSeconds) { this.idleEvictSeconds = idleEvictSeconds; }
+
+    public int getConnectionTtlSeconds() { return connectionTtlSeconds; }
+    public void setConnectionTtlSeconds(int connectionTtlSeconds) { this.connectionTtlSeconds = connectionTtlSeconds; }
+
+    public int getIoThreads() { return ioThreads; }
+    public void setIoThreads(int ioThreads) { this.ioThreads = ioThreads; }
+
+    public Map<KeycloakEndpoint, Timeouts> getEndpoints() { return endpoints; }
+    public void setEndpoints(Map<KeycloakEndpoint, Timeouts> endpoints) { this.endpoints = endpoints; }
+
+    public int readTimeoutFor(KeycloakEndpoint endpoint) {
+        Timeouts t = endpoints.get(endpoint);
+        return t != null && t.getReadTimeout() != null ? t.getReadTimeout() : readTimeout;
+    }
+
+    public int totalTimeoutFor(KeycloakEndpoint endpoint) {
+        Timeouts t = endpoints.get(endpoint);
+        return t != null && t.getTotalTimeout() != null ? t.getTotalTimeout() : totalTimeout;
+    }
+
+    public static class Timeouts {
+        private Integer readTimeout;
+        private Integer totalTimeout;
+
+        public Integer getReadTimeout() { return readTimeout; }
+        public void setReadTimeout(Integer readTimeout) { this.readTimeout = readTimeout; }
+
+        public Integer getTotalTimeout() { return totalTimeout; }
+        public void setTotalTimeout(Integer totalTimeout) { this.totalTimeout = totalTimeout; }
+    }
+}
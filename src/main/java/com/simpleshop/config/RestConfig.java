@@ -1,13 +1,320 @@
 package com.simpleshop.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class RestConfig {
+
+    // Used by the Keycloak OIDC calls (login, introspect, logout, certs)
+    @Bean
+    public RestTemplate restTemplate(KeycloakHttpProperties httpProps,
+                                     PoolingHttpClientConnectionManager connectionManager,
+                                     KeycloakHttpMetrics keycloakHttpMetrics) {
+
+        ClientHttpRequestFactory factory = "jdk".equalsIgnoreCase(httpProps.getClient())
+                ? jdkRequestFactory(httpProps)
+                : pooledRequestFactory(httpProps, connectionManager);
+
+        RestTemplate restTemplate = new RestTemplate(factory);
+        restTemplate.getInterceptors().add(keycloakHttpMetrics);
+        return restTemplate;
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public KeycloakHttpMetrics keycloakHttpMetrics() {
+        return new KeycloakHttpMetrics();
+    }
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager keycloakConnectionManager(KeycloakHttpProperties httpProps) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(httpProps.getMaxTotal())
+                .setMaxConnPerRoute(httpProps.getMaxPerRoute())
+                // LIFO keeps a few hot connections alive and lets the rest go idle and get evicted
+                .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(httpProps.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(httpProps.getReadTimeout()))
+                        .setTimeToLive(TimeValue.ofSeconds(httpProps.getConnectionTtlSeconds()))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+    }
+
+    // Used by KeycloakAuthService: a few I/O reactor threads multiplex every in-flight
+    // login/introspect/logout call instead of each one holding a servlet thread.
+    // Same pool limits and timeouts as the blocking client; per-endpoint read timeouts
+    // are set on each request and KeycloakAuthService enforces the total deadline.
+    @Bean(destroyMethod = "close")
+    public CloseableHttpAsyncClient keycloakAsyncClient(KeycloakHttpProperties httpProps) {
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(httpProps.getMaxTotal())
+                        .setMaxConnPerRoute(httpProps.getMaxPerRoute())
+                        .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                        .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.STRICT)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofMilliseconds(httpProps.getConnectTimeout()))
+                                .setSocketTimeout(Timeout.ofMilliseconds(httpProps.getReadTimeout()))
+                                .setTimeToLive(TimeValue.ofSeconds(httpProps.getConnectionTtlSeconds()))
+                                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                                .build())
+                        .setDefaultTlsConfig(TlsConfig.custom()
+                                .setVersionPolicy(httpProps.isHttp2() ? HttpVersionPolicy.NEGOTIATE : HttpVersionPolicy.FORCE_HTTP_1)
+                                .build())
+                        .build())
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setIoThreadCount(Math.max(1, httpProps.getIoThreads()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(httpProps.getIdleEvictSeconds()))
+                .disableAutomaticRetries()
+                .build();
+        client.start();
+        return client;
+    }
+
+    private ClientHttpRequestFactory pooledRequestFactory(KeycloakHttpProperties httpProps,
+                                                          PoolingHttpClientConnectionManager connectionManager) {
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(httpProps.getIdleEvictSeconds()))
+                .disableAutomaticRetries()
+                .build();
+
+        // Per-endpoint pool wait and response (socket read) timeouts; connect is on the ConnectionConfig
+        Map<KeycloakEndpoint, RequestConfig> requestConfigs = new EnumMap<>(KeycloakEndpoint.class);
+        for (KeycloakEndpoint endpoint : KeycloakEndpoint.values()) {
+            requestConfigs.put(endpoint, RequestConfig.custom()
+                    .setConnectionRequestTimeout(Timeout.ofMilliseconds(httpProps.getPoolAcquireTimeout()))
+                    .setResponseTimeout(Timeout.ofMilliseconds(httpProps.readTimeoutFor(endpoint)))
+                    .build());
+        }
+
+        HttpComponentsClientHttpRequestFactory factory = new DeadlineRequestFactory(httpClient, httpProps);
+        factory.setHttpContextFactory((method, uri) -> {
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(requestConfigs.get(KeycloakEndpoint.of(uri)));
+            return context;
+        });
+        return factory;
+    }
+
+    // java.net.http keeps its own pool (no per-route limits) but can negotiate HTTP/2.
+    // Its request timeout runs from send to the response, so it takes the smaller of the
+    // endpoint's read and total timeouts; one factory per endpoint over the same client.
+    private ClientHttpRequestFactory jdkRequestFactory(KeycloakHttpProperties httpProps) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(httpProps.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(httpProps.getConnectTimeout()))
+                .build();
+
+        Map<KeycloakEndpoint, JdkClientHttpRequestFactory> factories = new EnumMap<>(KeycloakEndpoint.class);
+        for (KeycloakEndpoint endpoint : KeycloakEndpoint.values()) {
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+            factory.setReadTimeout(Duration.ofMillis(
+                    Math.min(httpProps.readTimeoutFor(endpoint), httpProps.totalTimeoutFor(endpoint))));
+            factories.put(endpoint, factory);
+        }
+        return (uri, method) -> factories.get(KeycloakEndpoint.of(uri)).createRequest(uri, method);
+    }
+
+    // Deadline timers still queued for the classic client
+    static int pendingDeadlines() {
+        return DeadlineRequestFactory.DEADLINES.getQueue().size();
+    }
+
+    // The classic client only has per-read timeouts; a request still running at the
+    // endpoint's total timeout (body included) is aborted. The timer starts when the request
+    // is executed and is cancelled as soon as the response is closed.
+    private static final class DeadlineRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+        private static final ScheduledThreadPoolExecutor DEADLINES = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread t = new Thread(runnable, "keycloak-http-deadline");
+            t.setDaemon(true);
+            return t;
+        });
+
+        static {
+            // Almost every call finishes well before its deadline; cancelled timers leave the queue at once
+            DEADLINES.setRemoveOnCancelPolicy(true);
+        }
+
+        // super.createRequest builds the Apache request on the calling thread; handed back up through here
+        private static final ThreadLocal<HttpUriRequestBase> CREATED = new ThreadLocal<>();
+
+        private final KeycloakHttpProperties httpProps;
+
+        DeadlineRequestFactory(CloseableHttpClient httpClient, KeycloakHttpProperties httpProps) {
+            super(httpClient);
+            this.httpProps = httpProps;
+        }
+
+        @Override
+        protected ClassicHttpRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+            ClassicHttpRequest request = super.createHttpUriRequest(httpMethod, uri);
+            if (request instanceof HttpUriRequestBase cancellable) CREATED.set(cancellable);
+            return request;
+        }
+
+        @Override
+        public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+            try {
+                ClientHttpRequest request = super.createRequest(uri, httpMethod);
+                HttpUriRequestBase cancellable = CREATED.get();
+                if (cancellable == null) return request;
+                return new DeadlineRequest(request, cancellable, httpProps.totalTimeoutFor(KeycloakEndpoint.of(uri)));
+            } finally {
+                CREATED.remove();
+            }
+        }
+    }
+
+    private static final class DeadlineRequest implements ClientHttpRequest, StreamingHttpOutputMessage {
+
+        private final ClientHttpRequest delegate;
+        private final HttpUriRequestBase cancellable;
+        private final long totalTimeoutMillis;
+
+        DeadlineRequest(ClientHttpRequest delegate, HttpUriRequestBase cancellable, long totalTimeoutMillis) {
+            this.delegate = delegate;
+            this.cancellable = cancellable;
+            this.totalTimeoutMillis = totalTimeoutMillis;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            ScheduledFuture<?> deadline = DeadlineRequestFactory.DEADLINES.schedule(
+                    cancellable::cancel, totalTimeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                return new DeadlineResponse(delegate.execute(), deadline);
+            } catch (IOException | RuntimeException e) {
+                deadline.cancel(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public void setBody(Body body) {
+            if (delegate instanceof StreamingHttpOutputMessage streaming) {
+                streaming.setBody(body);
+                return;
+            }
+            try {
+                body.writeTo(delegate.getBody());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return delegate.getMethod();
+        }
+
+        @Override
+        public URI getURI() {
+            return delegate.getURI();
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return delegate.getAttributes();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+
+    private static final class DeadlineResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final ScheduledFuture<?> deadline;
+
+        DeadlineResponse(ClientHttpResponse delegate, ScheduledFuture<?> deadline) {
+            this.delegate = delegate;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                deadline.cancel(false);
+            }
+        }
     }
 }
@@ -0,0 +1,55 @@
+package com.simpleshop.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simpleshop.constants.ResponseMessages;
+import com.simpleshop.response.CannedResponse;
+import com.simpleshop.service.RevocationService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Runs right after bearer-token authentication and rejects tokens whose session
+// was logged out or whose user was blocked. Not a @Component on purpose: it must
+// only run inside the security filter chain, after the Jwt is known.
+public class RevocationFilter extends OncePerRequestFilter {
+
+    private final RevocationService revocationService;
+    private final ObjectMapper objectMapper;
+
+    public RevocationFilter(RevocationService revocationService, ObjectMapper objectMapper) {
+        this.revocationService = revocationService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+
+        if (auth instanceof JwtAuthenticationToken jwtAuth) {
+            Jwt jwt = jwtAuth.getToken();
+            String sid = jwt.hasClaim("sid") ? jwt.getClaimAsString("sid") : jwt.getClaimAsString("session_state");
+
+            if (revocationService.isRevoked(sid, jwt.getSubject())) {
+                SecurityContextHolder.clearContext();
+                response.setStatus(HttpStatus.UNAUTHORIZED.value());
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.getOutputStream().write(CannedResponse.failure(ResponseMessages.TOKEN_REVOKED).json(objectMapper));
+                return;
+            }
+        }
+
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,113 @@
+package com.simpleshop.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Serving mode switch: spring.threads.virtual.enabled=true runs Tomcat requests (and with them
+// the blocking Keycloak calls made on the request thread) on virtual threads.
+//
+// A virtual thread that blocks inside synchronized or native code pins its carrier, and with
+// few carriers a handful of pinned requests stall everything. In virtual mode this streams the
+// JFR jdk.VirtualThreadPinned events in-process, counts them per call site and logs the full
+// stack the first time a site shows up. See GET /api/admin/stats/virtual-threads.
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final boolean virtualThreads;
+    private final Duration threshold;
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder pinnedNanos = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> bySite = new ConcurrentHashMap<>();
+
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                       @Value("${virtual-threads.pinning.threshold-ms:20}") long thresholdMillis) {
+        this.virtualThreads = virtualThreads;
+        this.threshold = Duration.ofMillis(thresholdMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!virtualThreads) return;
+
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::record);
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) stream.close();
+    }
+
+    private void record(RecordedEvent event) {
+        events.increment();
+        pinnedNanos.add(event.getDuration().toNanos());
+
+        String site = site(event.getStackTrace());
+        LongAdder count = bySite.computeIfAbsent(site, s -> {
+            System.err.println("Virtual thread pinned for " + event.getDuration().toMillis() + " ms at " + s
+                    + (event.getStackTrace() == null ? "" : "\n" + format(event.getStackTrace())));
+            return new LongAdder();
+        });
+        count.increment();
+    }
+
+    // First frame outside the JDK: the code that entered the monitor or native call
+    private static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) return "unknown";
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) return describe(frame);
+        }
+        return describe(frames.get(0));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static String format(RecordedStackTrace stackTrace) {
+        StringBuilder sb = new StringBuilder();
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            sb.append("    at ").append(describe(frame)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("virtualThreads", virtualThreads);
+        stats.put("pinningThresholdMillis", threshold.toMillis());
+        stats.put("pinnedEvents", events.sum());
+        stats.put("pinnedMillis", pinnedNanos.sum() / 1_000_000);
+
+        Map<String, Long> sites = new LinkedHashMap<>();
+        bySite.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .limit(20)
+                .forEach(e -> sites.put(e.getKey(), e.getValue().sum()));
+        stats.put("sites", sites);
+        return stats;
+    }
+}
@@ -0,0 +1,25 @@
+package com.simpleshop.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simpleshop.response.CannedResponseConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    public WebConfig(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    // First, so pre-serialized responses never reach the Jackson converter
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new CannedResponseConverter(objectMapper));
+    }
+}
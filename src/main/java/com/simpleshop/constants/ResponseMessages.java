@@ -7,11 +7,17 @@ public class ResponseMessages {
     public static final String LOGOUT_SUCCESS = "Logged out successfully.";
 
     public static final String CUSTOMER_CREATED = "Customer created successfully.";
+    public static final String CUSTOMER_REGISTRATION_ACCEPTED = "Registration accepted. Account is being provisioned.";
     public static final String CUSTOMER_UPDATED = "Customer updated successfully.";
     public static final String CUSTOMER_DELETED = "Customer deleted successfully.";
     public static final String FETCH_SUCCESS = "Data fetched successfully.";
     public static final String NO_CUSTOMERS_FOUND = "No customers found.";
     public static final String CUSTOMER_NOT_FOUND = "Customer not found.";
+    public static final String CUSTOMER_VERSION_MISMATCH = "Customer was modified by another request. Fetch it again and retry.";
+    public static final String INVALID_CURSOR = "Invalid pagination cursor.";
+    public static final String INVALID_SEARCH_QUERY = "Search query must have at least 2 characters.";
+    public static final String SEARCH_PAGE_TOO_DEEP = "Search results beyond this page are not available. Please refine the query.";
+    public static final String SEARCH_INDEX_NOT_READY = "Search index is still being built. Please retry shortly.";
 
     public static final String ORDER_CREATED = "Order placed successfully.";
     public static final String ORDER_UPDATED = "Order updated successfully.";
@@ -31,6 +37,7 @@ public class ResponseMessages {
     public static final String ORDER_CREATION_FAILED = "Failed to create order.";
     public static final String ORDER_ACCESS_DENIED = "You are not allowed to modify this order.";
     public static final String TOKEN_EXPIRED = "Token expired. Please login again.";
+    public static final String TOKEN_REVOKED = "Token has been revoked. Please login again.";
 
     // Added new Role/Admin success messages
     public static final String ADMIN_CREATED = "New ADMIN created successfully.";
@@ -44,4 +51,16 @@ public class ResponseMessages {
     public static final String ACCESS_DENIED_ADMIN_ONLY = "Access denied: Only ADMIN can perform this action.";
     public static final String ACCESS_DENIED = "Access denied: cannot perform this action.";
 
+    // Admin / operations
+    public static final String CACHE_INVALIDATED = "Cache invalidated successfully.";
+    public static final String PERMISSIONS_RELOADED = "Role definitions reloaded.";
+    public static final String BULK_OPERATION_COMPLETED = "Bulk operation completed.";
+    public static final String BULK_REQUEST_INVALID = "Invalid bulk request.";
+    public static final String EXPORT_REQUEST_INVALID = "Invalid export request.";
+    public static final String RECONCILIATION_STARTED = "Reconciliation pass started.";
+    public static final String RECONCILIATION_ALREADY_RUNNING = "A reconciliation pass is already running.";
+    public static final String TOO_MANY_LOGIN_ATTEMPTS = "Too many login attempts. Please retry later.";
+    public static final String SERVICE_OVERLOADED = "Service is busy. Please retry shortly.";
+    public static final String KEYCLOAK_UNAVAILABLE = "Authentication server is unavailable. Please retry shortly.";
+
 }
@@ -0,0 +1,186 @@
+package com.simpleshop.controller;
+
+import com.simpleshop.config.CachingJwtDecoder;
+import com.simpleshop.config.ConcurrencyLimitFilter;
+import com.simpleshop.config.JwtAuthConverter;
+import com.simpleshop.config.KeycloakHttpMetrics;
+import com.simpleshop.config.VirtualThreadPinningMonitor;
+import com.simpleshop.constants.ResponseMessages;
+import com.simpleshop.response.ApiResponse;
+import com.simpleshop.response.CannedResponse;
+import com.simpleshop.service.CustomerCache;
+import com.simpleshop.service.CustomerSearchIndex;
+import com.simpleshop.service.KeycloakAdminGuard;
+import com.simpleshop.service.KeycloakRealmCache;
+import com.simpleshop.service.KeycloakReconciler;
+import com.simpleshop.service.LoginThrottle;
+import com.simpleshop.service.PermissionRegistry;
+import com.simpleshop.service.PermissionTable;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Operational endpoints. Everything under /api/admin/** requires ROLE_ADMIN (see SecurityConfig).
+@RestController
+@RequestMapping("${api.admin.base:/api/admin}")
+public class AdminController {
+
+    private final KeycloakHttpMetrics keycloakHttpMetrics;
+    private final PoolingHttpClientConnectionManager keycloakConnectionManager;
+    private final KeycloakRealmCache keycloakRealmCache;
+    private final CustomerCache customerCache;
+    private final CachingJwtDecoder jwtDecoder;
+    private final JwtAuthConverter jwtAuthConverter;
+    private final PermissionRegistry permissionRegistry;
+    private final CustomerSearchIndex customerSearchIndex;
+    private final KeycloakReconciler keycloakReconciler;
+    private final VirtualThreadPinningMonitor pinningMonitor;
+    private final LoginThrottle loginThrottle;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
+    private final KeycloakAdminGuard keycloakAdminGuard;
+
+    public AdminController(KeycloakHttpMetrics keycloakHttpMetrics,
+                           PoolingHttpClientConnectionManager keycloakConnectionManager,
+                           KeycloakRealmCache keycloakRealmCache,
+                           CustomerCache customerCache,
+                           CachingJwtDecoder jwtDecoder,
+                           JwtAuthConverter jwtAuthConverter,
+                           PermissionRegistry permissionRegistry,
+                           CustomerSearchIndex customerSearchIndex,
+                           KeycloakReconciler keycloakReconciler,
+                           VirtualThreadPinningMonitor pinningMonitor,
+                           LoginThrottle loginThrottle,
+                           ConcurrencyLimitFilter concurrencyLimitFilter,
+                           KeycloakAdminGuard keycloakAdminGuard) {
+        this.keycloakHttpMetrics = keycloakHttpMetrics;
+        this.keycloakConnectionManager = keycloakConnectionManager;
+        this.keycloakRealmCache = keycloakRealmCache;
+        this.customerCache = customerCache;
+        this.jwtDecoder = jwtDecoder;
+        this.jwtAuthConverter = jwtAuthConverter;
+        this.permissionRegistry = permissionRegistry;
+        this.customerSearchIndex = customerSearchIndex;
+        this.keycloakReconciler = keycloakReconciler;
+        this.pinningMonitor = pinningMonitor;
+        this.loginThrottle = loginThrottle;
+        this.concurrencyLimitFilter = concurrencyLimitFilter;
+        this.keycloakAdminGuard = keycloakAdminGuard;
+    }
+
+    // Keycloak OIDC transport: pool saturation + per-endpoint latency
+    @GetMapping("/stats/keycloak-http")
+    public ResponseEntity<ApiResponse> keycloakHttpStats() {
+        PoolStats total = keycloakConnectionManager.getTotalStats();
+
+        Map<String, Object> pool = new LinkedHashMap<>();
+        pool.put("leased", total.getLeased());
+        pool.put("pending", total.getPending());
+        pool.put("available", total.getAvailable());
+        pool.put("max", total.getMax());
+        pool.put("saturation", total.getMax() == 0 ? 0.0 : (double) total.getLeased() / total.getMax());
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("pool", pool);
+        data.put("endpoints", keycloakHttpMetrics.snapshot());
+
+        return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, data));
+    }
+
+    // Admin API isolation: breaker state, recent transitions, per-operation bulkheads
+    @GetMapping("/stats/keycloak-admin")
+    public ResponseEntity<ApiResponse> keycloakAdminStats() {
+        return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, keycloakAdminGuard.stats()));
+    }
+
+    @GetMapping("/stats/keycloak-realm-cache")
+    public ResponseEntity<ApiResponse> keycloakRealmCacheStats() {
+        return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, keycloakRealmCache.stats()));
+    }
+
+    // Call after changing realm roles or groups so provisioning picks them up immediately
+    @PostMapping("/caches/keycloak-realm/invalidate")
+    public ResponseEntity<ApiResponse> invalidateKeycloakRealmCache() {
+        keycloakRealmCache.invalidateAll();
+        return ResponseEntity.ok(CannedResponse.success(ResponseMessages.CACHE_INVALIDATED));
+    }
+
+    @GetMapping("/stats/customer-cache")
+    public ResponseEntity<ApiResponse> customerCacheStats() {
+        return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, customerCache.stats()));
+    }
+
+    // For changes made outside the application (manual SQL, restores)
+    @PostMapping("/caches/customers/invalidate")
+    public ResponseEntity<ApiResponse> invalidateCustomerCache() {
+        customerCache.invalidateAll();
+        return ResponseEntity.ok(CannedResponse.success(ResponseMessages.CACHE_INVALIDATED));
+    }
+
+    @GetMapping("/stats/jwt-cache")
+    public ResponseEntity<ApiResponse> jwtCacheStats() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("decoded", jwtDecoder.stats());
+        data.put("authorities", jwtAuthConverter.stats());
+        return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, data));
+    }
+
+    @GetMapping("/stats/customer-search")
+    public ResponseEntity<ApiResponse> customerSearchStats() {
+        return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, customerSearchIndex.stats()));
+    }
+
+    // Serving mode and carrier pinning seen so far (virtual mode only)
+    @GetMapping("/stats/virtual-threads")
+    public ResponseEntity<ApiResponse> virtualThreadStats() {
+        return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, pinningMonitor.stats()));
+    }
+
+    @GetMapping("/stats/login-throttle")
+    public ResponseEntity<ApiResponse> loginThrottleStats() {
+        return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, loginThrottle.stats()));
+    }
+
+    // Adaptive limit, in-flight requests and shed counts per route group
+    @GetMapping("/stats/concurrency-limits")
+    public ResponseEntity<ApiResponse> concurrencyLimitStats() {
+        return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, concurrencyLimitFilter.stats()));
+    }
+
+    // Checkpoint, running pass and the last pass report
+    @GetMapping("/reconciler")
+    public ResponseEntity<ApiResponse> reconcilerStatus() {
+        return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, keycloakReconciler.status()));
+    }
+
+    // Starts (or resumes) a pass now, even when the schedule is disabled
+    @PostMapping("/reconciler/run")
+    public ResponseEntity<ApiResponse> runReconciler() {
+        if (!keycloakReconciler.runNow()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(CannedResponse.failure(ResponseMessages.RECONCILIATION_ALREADY_RUNNING));
+        }
+        return ResponseEntity.accepted().body(CannedResponse.success(ResponseMessages.RECONCILIATION_STARTED));
+    }
+
+    // Compiled role definitions currently in force
+    @GetMapping("/permissions")
+    public ResponseEntity<ApiResponse> permissions() {
+        PermissionTable table = permissionRegistry.current();
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("version", table.version());
+        data.put("roles", table.describe());
+        return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, data));
+    }
+
+    // Apply role definition changes now instead of at the next poll
+    @PostMapping("/permissions/reload")
+    public ResponseEntity<ApiResponse> reloadPermissions() {
+        boolean changed = permissionRegistry.reload();
+        return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.PERMISSIONS_RELOADED, Map.of("changed", changed)));
+    }
+}
@@ -1,135 +1,145 @@
 package com.simpleshop.controller;
 
+import com.simpleshop.constants.ResponseMessages;
+import com.simpleshop.exception.KeycloakAuthException;
 import com.simpleshop.response.ApiResponse;
+import com.simpleshop.response.CannedResponse;
 import com.simpleshop.service.KeycloakAuthService;
+import com.simpleshop.service.LoginThrottle;
+import com.simpleshop.service.TokenVerificationService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("${api.auth.base}")
 public class AuthController {
 
     private final KeycloakAuthService keycloakAuthService;
+    private final TokenVerificationService tokenVerificationService;
+    private final LoginThrottle loginThrottle;
 
-    public AuthController(KeycloakAuthService keycloakAuthService) {
+    public AuthController(KeycloakAuthService keycloakAuthService, TokenVerificationService tokenVerificationService,
+                          LoginThrottle loginThrottle) {
         this.keycloakAuthService = keycloakAuthService;
+        this.tokenVerificationService = tokenVerificationService;
+        this.loginThrottle = loginThrottle;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse> login(@RequestBody Map<String, String> payload) {
+    public CompletableFuture<ResponseEntity<ApiResponse>> login(@RequestBody Map<String, String> payload, HttpServletRequest request) {
         String email = payload.get("email");
         String password = payload.get("password");
 
         if (email == null || email.isBlank() || password == null || password.isBlank()) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse(false, "email and password are required", null));
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.BAD_REQUEST).body(CannedResponse.failure("email and password are required")));
         }
 
-        try {
-            Map<String, Object> tokenResponse = keycloakAuthService.loginWithPassword(email, password);
-
-            if (tokenResponse == null) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ApiResponse(false, "Invalid credentials or Keycloak error", null));
-            }
-
-            return ResponseEntity.ok(new ApiResponse(true, "Login successful", tokenResponse));
-
-        } catch (HttpClientErrorException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(new ApiResponse(false, "Keycloak error: " + e.getResponseBodyAsString(), null));
-
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ApiResponse(false, "Unexpected error during login: " + e.getMessage(), null));
+        long retryAfter = loginThrottle.tryAcquire(email, request.getRemoteAddr());
+        if (retryAfter > 0) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter))
+                    .body(CannedResponse.failure(ResponseMessages.TOO_MANY_LOGIN_ATTEMPTS)));
         }
+
+        // The servlet thread is released here; the response is written when Keycloak answers
+        return keycloakAuthService.loginWithPassword(email, password)
+                .thenApply(token -> ResponseEntity.ok(new ApiResponse(true, "Login successful", token)))
+                .exceptionally(e -> keycloakFailure(e, HttpStatus.UNAUTHORIZED, "Invalid credentials or Keycloak error"));
     }
 
     @GetMapping("/verify")
-    public ResponseEntity<ApiResponse> verify(@RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
+    public CompletableFuture<ResponseEntity<ApiResponse>> verify(@RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse(false, "Missing or invalid Authorization header", null));
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.BAD_REQUEST).body(CannedResponse.failure("Missing or invalid Authorization header")));
         }
 
         String token = authHeader.substring(7);
 
-        try {
-            Map<String, Object> introspect = keycloakAuthService.introspectToken(token);
-
-            if (introspect == null) {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ApiResponse(false, "Introspection failed", null));
-            }
+        // Verified locally against cached realm keys; introspection only as fallback
+        return tokenVerificationService.verify(token)
+                .thenApply(AuthController::verifyResponse)
+                .exceptionally(e -> keycloakFailure(e, HttpStatus.BAD_GATEWAY, "Introspection failed"));
+    }
 
-            Boolean active = (Boolean) introspect.getOrDefault("active", false);
-            if (!active) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ApiResponse(false, "Token is not active", Map.of("active", false)));
-            }
+    private static ResponseEntity<ApiResponse> verifyResponse(Map<String, Object> introspect) {
+        Boolean active = (Boolean) introspect.getOrDefault("active", false);
+        if (!active) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ApiResponse(false, "Token is not active", Map.of("active", false)));
+        }
 
-            /* ---------------- Extract Required Fields ---------------- */
-            String name = (String) introspect.getOrDefault("name", "");
-            String preferredUsername = (String) introspect.getOrDefault("preferred_username", "");
-            String givenName = (String) introspect.getOrDefault("given_name", "");
-            String familyName = (String) introspect.getOrDefault("family_name", "");
-            String email = (String) introspect.getOrDefault("email", "");
-            String username = (String) introspect.getOrDefault("username", preferredUsername);
-
-            // Default token_type to Bearer
-            String tokenType = "Bearer";
-
-            /* ---------------- Determine Role ---------------- */
-            String role = "USER";
-            Object realmAccess = introspect.get("realm_access");
-
-            if (realmAccess instanceof Map) {
-                Object rolesObj = ((Map<?, ?>) realmAccess).get("roles");
-                if (rolesObj instanceof Iterable) {
-                    for (Object r : (Iterable<?>) rolesObj) {
-                        if ("ADMIN".equalsIgnoreCase(String.valueOf(r))) {
-                            role = "ADMIN";
-                            break;
-                        }
+        /* ---------------- Extract Required Fields ---------------- */
+        String name = (String) introspect.getOrDefault("name", "");
+        String preferredUsername = (String) introspect.getOrDefault("preferred_username", "");
+        String givenName = (String) introspect.getOrDefault("given_name", "");
+        String familyName = (String) introspect.getOrDefault("family_name", "");
+        String email = (String) introspect.getOrDefault("email", "");
+        String username = (String) introspect.getOrDefault("username", preferredUsername);
+
+        // Default token_type to Bearer
+        String tokenType = "Bearer";
+
+        /* ---------------- Determine Role ---------------- */
+        String role = "USER";
+        Object realmAccess = introspect.get("realm_access");
+
+        if (realmAccess instanceof Map) {
+            Object rolesObj = ((Map<?, ?>) realmAccess).get("roles");
+            if (rolesObj instanceof Iterable) {
+                for (Object r : (Iterable<?>) rolesObj) {
+                    if ("ADMIN".equalsIgnoreCase(String.valueOf(r))) {
+                        role = "ADMIN";
+                        break;
                     }
                 }
             }
+        }
 
-            /* ---------------- Prepare Final Response Body ---------------- */
-            Map<String, Object> data = Map.of("active", true, "name", name, "preferred_username", preferredUsername, "given_name", givenName, "family_name", familyName, "email", email, "username", username, "token_type", tokenType);
-
-            return ResponseEntity.ok(new ApiResponse(true, "Token is valid", Map.of("data", data, "role", role)));
-
-        } catch (HttpClientErrorException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(new ApiResponse(false, "Keycloak error: " + e.getResponseBodyAsString(), null));
+        /* ---------------- Prepare Final Response Body ---------------- */
+        Map<String, Object> data = Map.of("active", true, "name", name, "preferred_username", preferredUsername, "given_name", givenName, "family_name", familyName, "email", email, "username", username, "token_type", tokenType);
 
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ApiResponse(false, "Unexpected error during token verification: " + e.getMessage(), null));
-        }
+        return ResponseEntity.ok(new ApiResponse(true, "Token is valid", Map.of("data", data, "role", role)));
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<ApiResponse> logout(@RequestBody Map<String, String> payload) {
+    public CompletableFuture<ResponseEntity<ApiResponse>> logout(@RequestBody Map<String, String> payload) {
 
         String refreshToken = payload.get("token");
 
         if (refreshToken == null || refreshToken.isBlank()) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse(false, "refresh token missing in body", null));
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.BAD_REQUEST).body(CannedResponse.failure("refresh token missing in body")));
         }
 
-        try {
-            boolean ok = keycloakAuthService.logoutByRefreshToken(refreshToken);
-
-            if (!ok) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ApiResponse(false, "Invalid or expired refresh token. Logout failed.", null));
-            }
-
-            return ResponseEntity.ok(new ApiResponse(true, "Logout successful", null));
+        return keycloakAuthService.logoutByRefreshToken(refreshToken)
+                .thenApply(ok -> ok
+                        ? ResponseEntity.ok((ApiResponse) CannedResponse.success("Logout successful"))
+                        : ResponseEntity.status(HttpStatus.BAD_REQUEST).body((ApiResponse) CannedResponse.failure("Invalid or expired refresh token. Logout failed.")))
+                .exceptionally(e -> keycloakFailure(e, HttpStatus.BAD_REQUEST, "Invalid or expired refresh token. Logout failed."));
+    }
 
-        } catch (HttpClientErrorException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(new ApiResponse(false, "Keycloak error: " + e.getResponseBodyAsString(), null));
+    // Keycloak rejecting the request maps to the endpoint's own status; no answer at all is a 502
+    private static ResponseEntity<ApiResponse> keycloakFailure(Throwable e, HttpStatus rejectedStatus, String rejectedMessage) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
 
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ApiResponse(false, "Unexpected error during logout: " + e.getMessage(), null));
+        if (cause instanceof KeycloakAuthException kc) {
+            if (kc.isRejected()) {
+                return ResponseEntity.status(rejectedStatus).body(CannedResponse.failure(rejectedMessage));
+            }
+            System.err.println("Keycloak call failed: " + kc.getMessage() + (kc.getCause() != null ? " (" + kc.getCause() + ")" : ""));
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(CannedResponse.failure(ResponseMessages.KEYCLOAK_UNAVAILABLE));
         }
+
+        cause.printStackTrace();
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(CannedResponse.failure(ResponseMessages.INTERNAL_SERVER_ERROR));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,109 @@
+package com.simpleshop.controller;
+
+import com.simpleshop.constants.ResponseMessages;
+import com.simpleshop.dto.BulkCustomerRequest;
+import com.simpleshop.dto.BulkReportDTO;
+import com.simpleshop.response.ApiResponse;
+import com.simpleshop.service.CustomerBulkService;
+import com.simpleshop.service.CustomerExportService;
+import com.simpleshop.service.CustomerImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+// Bulk customer operations for admins (see SecurityConfig for /api/admin/**)
+@RestController
+@RequestMapping("${api.admin.base:/api/admin}/customers")
+public class CustomerBulkController {
+
+    private final CustomerImportService customerImportService;
+    private final CustomerBulkService customerBulkService;
+    private final CustomerExportService customerExportService;
+
+    public CustomerBulkController(CustomerImportService customerImportService,
+                                  CustomerBulkService customerBulkService,
+                                  CustomerExportService customerExportService) {
+        this.customerImportService = customerImportService;
+        this.customerBulkService = customerBulkService;
+        this.customerExportService = customerExportService;
+    }
+
+    // Upload is read as it arrives and results are written back per row (NDJSON),
+    // ending with a {"summary": ...} line. Send text/csv (header required) or application/x-ndjson.
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"}, produces = "application/x-ndjson")
+    public void importCustomers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean csv = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.parseMediaType("text/csv"));
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/x-ndjson");
+        customerImportService.importCustomers(request.getInputStream(), csv, response.getOutputStream());
+    }
+
+    // Full extract, streamed as it is read: ?format=csv|ndjson&columns=customerId,email&active=true&gzip=true
+    @GetMapping("/export")
+    public ResponseEntity<?> exportCustomers(@RequestParam(defaultValue = "csv") String format,
+                                             @RequestParam(required = false) String columns,
+                                             @RequestParam(required = false) Boolean active,
+                                             @RequestParam(defaultValue = "false") boolean gzip) {
+        CustomerExportService.Format exportFormat;
+        List<String> exportColumns;
+        try {
+            exportFormat = CustomerExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+            exportColumns = customerExportService.resolveColumns(columns);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, ResponseMessages.EXPORT_REQUEST_INVALID, e.getMessage()));
+        }
+
+        String fileName = "customers-" + LocalDate.now() + (exportFormat == CustomerExportService.Format.CSV ? ".csv" : ".ndjson");
+        MediaType contentType = exportFormat == CustomerExportService.Format.CSV
+                ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                : MediaType.parseMediaType("application/x-ndjson");
+        if (gzip) {
+            fileName += ".gz";
+            contentType = MediaType.parseMediaType("application/gzip");
+        }
+
+        StreamingResponseBody body = out -> customerExportService.export(exportFormat, exportColumns, active, gzip, out);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
+    // Body: {"customerIds": [...]} or a filter {"active": true, "customerIdPrefix": "CUS_010125_"}
+    @PostMapping("/bulk/block")
+    public ResponseEntity<ApiResponse> blockCustomers(@RequestBody BulkCustomerRequest request) {
+        return runBulk(request, customerBulkService::block);
+    }
+
+    @PostMapping("/bulk/unblock")
+    public ResponseEntity<ApiResponse> unblockCustomers(@RequestBody BulkCustomerRequest request) {
+        return runBulk(request, customerBulkService::unblock);
+    }
+
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<ApiResponse> deleteCustomers(@RequestBody BulkCustomerRequest request) {
+        return runBulk(request, customerBulkService::delete);
+    }
+
+    private ResponseEntity<ApiResponse> runBulk(BulkCustomerRequest request, Function<BulkCustomerRequest, BulkReportDTO> operation) {
+        try {
+            BulkReportDTO report = operation.apply(request);
+            return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.BULK_OPERATION_COMPLETED, report));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, ResponseMessages.BULK_REQUEST_INVALID, e.getMessage()));
+        }
+    }
+}
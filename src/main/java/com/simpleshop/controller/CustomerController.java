@@ -2,17 +2,35 @@ package com.simpleshop.controller;
 
 import com.simpleshop.constants.ResponseMessages;
 import com.simpleshop.dto.CustomerDTO;
+import com.simpleshop.dto.CustomerPageDTO;
+import com.simpleshop.dto.CustomerPatchRequest;
+import com.simpleshop.dto.CustomerSearchPageDTO;
+import com.simpleshop.exception.PreconditionFailedException;
 import com.simpleshop.model.Customer;
+import com.simpleshop.model.Permission;
 import com.simpleshop.response.ApiResponse;
+import com.simpleshop.response.CannedResponse;
+import com.simpleshop.service.CustomerSearchIndex;
 import com.simpleshop.service.CustomerServiceInterface;
 import com.simpleshop.service.RoleService;
+import com.simpleshop.util.ETags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.util.List;
+import java.net.URI;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("${api.customer.base}")
@@ -20,71 +38,154 @@ public class CustomerController {
 
     private final CustomerServiceInterface customerService;
     private final RoleService roleService;
+    private final CustomerSearchIndex searchIndex;
+    private final boolean asyncProvisioning;
 
-    public CustomerController(CustomerServiceInterface customerService, RoleService roleService) {
+    public CustomerController(CustomerServiceInterface customerService, RoleService roleService,
+                              CustomerSearchIndex searchIndex,
+                              @Value("${customer.provisioning.async:false}") boolean asyncProvisioning) {
         this.customerService = customerService;
         this.roleService = roleService;
+        this.searchIndex = searchIndex;
+        this.asyncProvisioning = asyncProvisioning;
     }
 
-    // ADMIN → Get all customers
+    // ADMIN → Get customers, one keyset page at a time
     @GetMapping("/getAllCustomers")
     public ResponseEntity<ApiResponse> getAllCustomers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) Boolean active,
             @AuthenticationPrincipal Jwt principal
     ) {
 
-        if (!roleService.isAdmin(principal)) {
+        if (!roleService.hasPermission(principal, Permission.CUSTOMER_LIST)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(new ApiResponse(false, ResponseMessages.ACCESS_DENIED_ADMIN_ONLY, null));
+                    .body(CannedResponse.failure(ResponseMessages.ACCESS_DENIED_ADMIN_ONLY));
         }
 
-        List<CustomerDTO> customers = customerService.getAllCustomers();
-        return ResponseEntity.ok(
-                new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, customers)
-        );
+        try {
+            CustomerPageDTO page = customerService.getCustomersPage(cursor, limit, active);
+            return ResponseEntity.ok(
+                    new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, page)
+            );
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(CannedResponse.failure(ResponseMessages.INVALID_CURSOR));
+        }
+    }
+
+    // ADMIN → Stream all customers as NDJSON (one JSON object per line)
+    @GetMapping(value = "/getAllCustomers/stream", produces = "application/x-ndjson")
+    public ResponseEntity<?> streamAllCustomers(
+            @RequestParam(required = false) Boolean active,
+            @AuthenticationPrincipal Jwt principal
+    ) {
+
+        if (!roleService.hasPermission(principal, Permission.CUSTOMER_LIST)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(CannedResponse.failure(ResponseMessages.ACCESS_DENIED_ADMIN_ONLY));
+        }
+
+        StreamingResponseBody body = out -> customerService.streamCustomers(active, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    // ADMIN / support → Search by partial userName, email, first or last name
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse> searchCustomers(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal Jwt principal
+    ) {
+
+        if (!roleService.hasPermission(principal, Permission.CUSTOMER_READ_ANY)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(CannedResponse.failure(ResponseMessages.ACCESS_DENIED_ADMIN_ONLY));
+        }
+
+        if (q.isBlank() || q.trim().length() < 2) {
+            return ResponseEntity.badRequest()
+                    .body(CannedResponse.failure(ResponseMessages.INVALID_SEARCH_QUERY));
+        }
+
+        if (!searchIndex.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "5")
+                    .body(CannedResponse.failure(ResponseMessages.SEARCH_INDEX_NOT_READY));
+        }
+
+        int pageNo = Math.max(0, page);
+        int pageSize = Math.max(1, Math.min(size, 100));
+        if (((long) pageNo + 1) * pageSize > searchIndex.maxResults()) {
+            return ResponseEntity.badRequest()
+                    .body(CannedResponse.failure(ResponseMessages.SEARCH_PAGE_TOO_DEEP));
+        }
+
+        CustomerSearchPageDTO result = searchIndex.search(q, pageNo, pageSize);
+        return ResponseEntity.ok(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, result));
     }
 
     // USER → Access own data | ADMIN → Access any user
     @GetMapping("/{customerId}")
     public ResponseEntity<ApiResponse> getCustomerByCustomerId(
             @PathVariable String customerId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             @AuthenticationPrincipal Jwt principal
     ) {
 
         String requesterKcId = principal.getSubject();
+
+        // Revalidation: access check + version only, no customer read and no body
+        if (ifNoneMatch != null
+                && (roleService.hasPermission(principal, Permission.CUSTOMER_READ_ANY) || customerService.isOwner(customerId, requesterKcId))) {
+            ResponseEntity<ApiResponse> notModified = notModified(customerService.getCustomerVersion(customerId), ifNoneMatch);
+            if (notModified != null) return notModified;
+        }
+
         CustomerDTO dto = customerService.getCustomerSecure(customerId, requesterKcId);
 
         if (dto == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(new ApiResponse(false, ResponseMessages.CUSTOMER_NOT_FOUND, null));
+                    .body(CannedResponse.failure(ResponseMessages.CUSTOMER_NOT_FOUND));
         }
 
         // dto exists but user not allowed
         if (dto.getCustomerId() == null) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(new ApiResponse(false, ResponseMessages.ACCESS_DENIED, null));
+                    .body(CannedResponse.failure(ResponseMessages.ACCESS_DENIED));
         }
 
-        return ResponseEntity.ok(
-                new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, dto)
-        );
+        return versioned(ResponseEntity.ok(), dto.getVersion())
+                .body(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, dto));
     }
 
     @GetMapping("/by-keycloak/{keycloakId}")
     public ResponseEntity<ApiResponse> getCustomerByKeycloakId(
             @PathVariable String keycloakId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             @AuthenticationPrincipal Jwt principal
     ) {
         // Extract logged-in user's keycloakId from access token (sub)
         String loggedInKeycloakId = principal.getSubject();
 
-        boolean isAdmin = roleService.isAdmin(principal);
+        boolean canReadAny = roleService.hasPermission(principal, Permission.CUSTOMER_READ_ANY);
 
         // Allow only:
         //    - admin users
         //    - OR customers fetching their own data
-        if (!isAdmin && !keycloakId.equals(loggedInKeycloakId)) {
+        if (!canReadAny && !keycloakId.equals(loggedInKeycloakId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(new ApiResponse(false, "Access denied", null));
+                    .body(CannedResponse.failure("Access denied"));
+        }
+
+        if (ifNoneMatch != null) {
+            ResponseEntity<ApiResponse> notModified = notModified(customerService.getCustomerVersionByKeycloakId(keycloakId), ifNoneMatch);
+            if (notModified != null) return notModified;
         }
 
         // Fetch customer from DB
@@ -92,10 +193,23 @@ public class CustomerController {
 
         if (dto == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(new ApiResponse(false, "Customer not found", null));
+                    .body(CannedResponse.failure("Customer not found"));
         }
 
-        return ResponseEntity.ok(new ApiResponse(true, "Customer fetched successfully", dto));
+        return versioned(ResponseEntity.ok(), dto.getVersion())
+                .body(new ApiResponse(true, "Customer fetched successfully", dto));
+    }
+
+    // 304 with the current ETag, or null when the client's copy is stale (or the customer is gone)
+    private static ResponseEntity<ApiResponse> notModified(Optional<Long> version, String ifNoneMatch) {
+        if (version.isEmpty() || !ETags.noneMatchHits(ifNoneMatch, version.get())) return null;
+        return versioned(ResponseEntity.status(HttpStatus.NOT_MODIFIED), version.get()).build();
+    }
+
+    // Private (per-user data) and always revalidated
+    private static ResponseEntity.BodyBuilder versioned(ResponseEntity.BodyBuilder builder, long version) {
+        return builder.eTag(ETags.of(version))
+                .cacheControl(CacheControl.noCache().cachePrivate());
     }
 
 
@@ -105,6 +219,24 @@ public class CustomerController {
             @RequestBody Customer customer
     ) {
 
+        if (asyncProvisioning) {
+            return customerService.createCustomerAsync(customer)
+                    .map(accepted -> {
+                        URI statusUrl = ServletUriComponentsBuilder.fromCurrentRequest()
+                                .path("/status/{statusToken}")
+                                .buildAndExpand(accepted.getStatusToken())
+                                .toUri();
+                        return ResponseEntity.accepted()
+                                .location(statusUrl)
+                                .body(new ApiResponse(true, ResponseMessages.CUSTOMER_REGISTRATION_ACCEPTED,
+                                        Map.of("customer", accepted.getCustomer(), "statusUrl", statusUrl.toString())));
+                    })
+                    .orElseGet(() ->
+                            ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                    .body(CannedResponse.failure(ResponseMessages.CUSTOMER_CREATION_FAILED))
+                    );
+        }
+
         return customerService.createCustomer(customer)
                 .map(created ->
                         ResponseEntity.status(HttpStatus.CREATED)
@@ -112,7 +244,23 @@ public class CustomerController {
                 )
                 .orElseGet(() ->
                         ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                                .body(new ApiResponse(false, ResponseMessages.CUSTOMER_CREATION_FAILED, null))
+                                .body(CannedResponse.failure(ResponseMessages.CUSTOMER_CREATION_FAILED))
+                );
+    }
+
+    // Public → Poll async registration until the Keycloak account exists.
+    // Keyed on the random token from the 202, not the (sequential) customer id.
+    @GetMapping("/register/status/{statusToken}")
+    public ResponseEntity<ApiResponse> getRegistrationStatus(
+            @PathVariable String statusToken
+    ) {
+
+        return customerService.getProvisioningStatus(statusToken)
+                .map(status -> ResponseEntity.ok(
+                        new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, status)))
+                .orElseGet(() ->
+                        ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                .body(CannedResponse.failure(ResponseMessages.CUSTOMER_NOT_FOUND))
                 );
     }
 
@@ -121,27 +269,59 @@ public class CustomerController {
     public ResponseEntity<ApiResponse> updateCustomer(
             @PathVariable String customerId,
             @RequestBody Customer updated,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @AuthenticationPrincipal Jwt principal
     ) {
 
+        return update(customerId, ifMatch, principal,
+                expectedVersion -> customerService.updateCustomer(customerId, updated, expectedVersion));
+    }
+
+    // Same access rules as PUT; only the fields present in the body are changed
+    @PatchMapping("/{customerId}")
+    public ResponseEntity<ApiResponse> patchCustomer(
+            @PathVariable String customerId,
+            @RequestBody CustomerPatchRequest patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @AuthenticationPrincipal Jwt principal
+    ) {
+
+        return update(customerId, ifMatch, principal,
+                expectedVersion -> customerService.patchCustomer(customerId, patch, expectedVersion));
+    }
+
+    private ResponseEntity<ApiResponse> update(String customerId, String ifMatch, Jwt principal,
+                                               Function<Long, Optional<CustomerDTO>> operation) {
+
         String requesterKcId = principal.getSubject();
 
         // Only ADMIN can update anyone.
         // USER can update only their own data.
-        if (!roleService.isAdmin(principal)
+        if (!roleService.hasPermission(principal, Permission.CUSTOMER_UPDATE_ANY)
                 && !customerService.isOwner(customerId, requesterKcId)) {
 
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(new ApiResponse(false, ResponseMessages.ACCESS_DENIED, null));
+                    .body(CannedResponse.failure(ResponseMessages.ACCESS_DENIED));
         }
 
-        return customerService.updateCustomer(customerId, updated)
-                .map(dto -> ResponseEntity.ok(
-                        new ApiResponse(true, ResponseMessages.CUSTOMER_UPDATED, dto)))
-                .orElseGet(() ->
-                        ResponseEntity.status(HttpStatus.NOT_FOUND)
-                                .body(new ApiResponse(false, ResponseMessages.CUSTOMER_NOT_FOUND, null))
-                );
+        // If-Match: the update only applies to the version the client last saw
+        try {
+            return operation.apply(ETags.expectedVersion(ifMatch))
+                    .map(dto -> versioned(ResponseEntity.ok(), dto.getVersion())
+                            .body(new ApiResponse(true, ResponseMessages.CUSTOMER_UPDATED, dto)))
+                    .orElseGet(() ->
+                            ResponseEntity.status(HttpStatus.NOT_FOUND)
+                                    .body(CannedResponse.failure(ResponseMessages.CUSTOMER_NOT_FOUND))
+                    );
+        } catch (PreconditionFailedException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .eTag(ETags.of(e.getCurrentVersion()))
+                    .body(CannedResponse.failure(ResponseMessages.CUSTOMER_VERSION_MISMATCH));
+        } catch (OptimisticLockingFailureException e) {
+            // Changed by someone else between our read and our write
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                    .body(CannedResponse.failure(ResponseMessages.CUSTOMER_VERSION_MISMATCH));
+        }
     }
 
 
@@ -154,24 +334,22 @@ public class CustomerController {
     ) {
 
         String requesterKcId = principal.getSubject();
-        boolean isAdmin = roleService.isAdmin(principal);
-        boolean isOwner = customerService.isOwner(customerId, requesterKcId);
-
-        // USER cannot delete other users
-        if (!isAdmin && !isOwner) {
+        // USER cannot delete other users (ownership query skipped for admins)
+        if (!roleService.hasPermission(principal, Permission.CUSTOMER_DELETE_ANY)
+                && !customerService.isOwner(customerId, requesterKcId)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(new ApiResponse(false, ResponseMessages.ACCESS_DENIED, null));
+                    .body(CannedResponse.failure(ResponseMessages.ACCESS_DENIED));
         }
 
         boolean deleted = customerService.deleteCustomer(customerId);
 
         if (!deleted) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(new ApiResponse(false, ResponseMessages.CUSTOMER_NOT_FOUND, null));
+                    .body(CannedResponse.failure(ResponseMessages.CUSTOMER_NOT_FOUND));
         }
 
         return ResponseEntity.ok(
-                new ApiResponse(true, ResponseMessages.CUSTOMER_DELETED, null)
+                CannedResponse.success(ResponseMessages.CUSTOMER_DELETED)
         );
     }
 
@@ -183,18 +361,18 @@ public class CustomerController {
             @AuthenticationPrincipal Jwt principal
     ) {
 
-        if (!roleService.isAdmin(principal)) {
+        if (!roleService.hasPermission(principal, Permission.CUSTOMER_BLOCK)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(new ApiResponse(false, ResponseMessages.ACCESS_DENIED_ADMIN_ONLY, null));
+                    .body(CannedResponse.failure(ResponseMessages.ACCESS_DENIED_ADMIN_ONLY));
         }
 
         if (!customerService.blockCustomer(customerId)) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(new ApiResponse(false, ResponseMessages.CUSTOMER_NOT_FOUND, null));
+                    .body(CannedResponse.failure(ResponseMessages.CUSTOMER_NOT_FOUND));
         }
 
         return ResponseEntity.ok(
-                new ApiResponse(true, "Customer blocked successfully", null)
+                CannedResponse.success("Customer blocked successfully")
         );
     }
 
@@ -206,18 +384,18 @@ public class CustomerController {
             @AuthenticationPrincipal Jwt principal
     ) {
 
-        if (!roleService.isAdmin(principal)) {
+        if (!roleService.hasPermission(principal, Permission.CUSTOMER_BLOCK)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(new ApiResponse(false, ResponseMessages.ACCESS_DENIED_ADMIN_ONLY, null));
+                    .body(CannedResponse.failure(ResponseMessages.ACCESS_DENIED_ADMIN_ONLY));
         }
 
         if (!customerService.unblockCustomer(customerId)) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(new ApiResponse(false, ResponseMessages.CUSTOMER_NOT_FOUND, null));
+                    .body(CannedResponse.failure(ResponseMessages.CUSTOMER_NOT_FOUND));
         }
 
         return ResponseEntity.ok(
-                new ApiResponse(true, "Customer unblocked successfully", null)
+                CannedResponse.success("Customer unblocked successfully")
         );
     }
 }
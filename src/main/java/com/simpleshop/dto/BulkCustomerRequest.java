@@ -0,0 +1,17 @@
+package com.simpleshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Targets of a bulk admin operation: either an explicit id list or a filter, not both
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkCustomerRequest {
+    private List<String> customerIds;
+    private Boolean active;
+    private String customerIdPrefix;
+}
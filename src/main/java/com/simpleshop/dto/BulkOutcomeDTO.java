@@ -0,0 +1,17 @@
+package com.simpleshop.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkOutcomeDTO {
+    private String customerId;
+    // DONE, NOT_FOUND or FAILED
+    private String outcome;
+    private String error;
+}
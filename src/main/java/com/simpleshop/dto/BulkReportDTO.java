@@ -0,0 +1,20 @@
+package com.simpleshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkReportDTO {
+    private String operation;
+    private int matched;
+    private int succeeded;
+    private int failed;
+    private int notFound;
+    private long elapsedMillis;
+    private List<BulkOutcomeDTO> results;
+}
@@ -16,4 +16,5 @@ public class CustomerDTO {
     private String lastName;
     private String email;
     private boolean active;
+    private long version;
 }
@@ -0,0 +1,18 @@
+package com.simpleshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One record of a bulk import upload (CSV column or NDJSON field names)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerImportRow {
+    private String userName;
+    private String email;
+    private String password;
+    private String firstName;
+    private String lastName;
+    private Boolean active;
+}
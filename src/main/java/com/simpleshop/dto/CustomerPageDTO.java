@@ -0,0 +1,17 @@
+package com.simpleshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerPageDTO {
+    private List<CustomerDTO> items;
+    // Opaque cursor for the next page, null when this is the last page
+    private String nextCursor;
+    private int limit;
+}
@@ -0,0 +1,16 @@
+package com.simpleshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// PATCH body: only the fields present (non-null) are changed
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerPatchRequest {
+    private String userName;
+    private String email;
+    private String firstName;
+    private String lastName;
+}
@@ -0,0 +1,18 @@
+package com.simpleshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerSearchHitDTO {
+    private String customerId;
+    private String userName;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private boolean active;
+    private int score;
+}
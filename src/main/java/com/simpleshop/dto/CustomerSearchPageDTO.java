@@ -0,0 +1,20 @@
+package com.simpleshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerSearchPageDTO {
+    private List<CustomerSearchHitDTO> items;
+    private int total;
+    // true when the query matched more candidates than customer.search.max-candidates
+    private boolean truncated;
+    private int page;
+    private int size;
+    private long tookMicros;
+}
@@ -0,0 +1,20 @@
+package com.simpleshop.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportRowResult {
+    // 1-based record number in the upload (header line not counted)
+    private long row;
+    // CREATED, INVALID, DUPLICATE, FAILED or UNVERIFIED (kept, Keycloak state unknown)
+    private String status;
+    private String customerId;
+    private String email;
+    private String error;
+}
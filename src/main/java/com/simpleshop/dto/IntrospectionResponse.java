@@ -0,0 +1,7 @@
+package com.simpleshop.dto;
+
+import java.util.Map;
+
+// RFC 7662 answer: "active" plus whatever claims Keycloak includes for an active token
+public record IntrospectionResponse(boolean active, Map<String, Object> claims) {
+}
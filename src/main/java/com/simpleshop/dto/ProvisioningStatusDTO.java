@@ -0,0 +1,18 @@
+package com.simpleshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProvisioningStatusDTO {
+    private String customerId;
+    // PENDING, IN_PROGRESS, DONE or FAILED
+    private String status;
+    private int attempts;
+    private Instant updatedAt;
+}
@@ -0,0 +1,14 @@
+package com.simpleshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RegistrationAcceptedDTO {
+    private CustomerDTO customer;
+    // Keys GET /register/status/{statusToken}; only the registrant ever sees it
+    private String statusToken;
+}
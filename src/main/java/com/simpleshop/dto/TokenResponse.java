@@ -0,0 +1,20 @@
+package com.simpleshop.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Keycloak's token endpoint response; serialized back to clients with the same names
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TokenResponse(
+        @JsonProperty("access_token") String accessToken,
+        @JsonProperty("expires_in") Long expiresIn,
+        @JsonProperty("refresh_expires_in") Long refreshExpiresIn,
+        @JsonProperty("refresh_token") String refreshToken,
+        @JsonProperty("token_type") String tokenType,
+        @JsonProperty("id_token") String idToken,
+        @JsonProperty("not-before-policy") Long notBeforePolicy,
+        @JsonProperty("session_state") String sessionState,
+        @JsonProperty("scope") String scope) {
+}
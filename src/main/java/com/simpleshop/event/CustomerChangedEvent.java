@@ -0,0 +1,6 @@
+package com.simpleshop.event;
+
+// Published whenever a customer row is updated, blocked/unblocked, linked to Keycloak or deleted.
+// Listeners run after the surrounding transaction commits.
+public record CustomerChangedEvent(String customerId) {
+}
@@ -0,0 +1,10 @@
+package com.simpleshop.event;
+
+import com.simpleshop.util.CircuitBreaker;
+
+import java.time.Instant;
+
+// Published by KeycloakAdminGuard on every breaker transition (synchronously, on the calling thread)
+public record KeycloakCircuitStateChangedEvent(String circuit, CircuitBreaker.State from, CircuitBreaker.State to,
+                                               double failureRate, Instant at) {
+}
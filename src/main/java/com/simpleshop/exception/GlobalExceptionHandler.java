@@ -2,7 +2,9 @@ package com.simpleshop.exception;
 
 import com.simpleshop.constants.ResponseMessages;
 import com.simpleshop.response.ApiResponse;
+import com.simpleshop.response.CannedResponse;
 import io.jsonwebtoken.JwtException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -17,11 +19,19 @@ public class GlobalExceptionHandler {
 
         if (ResponseMessages.TOKEN_EXPIRED.equals(message)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
-                    .body(new ApiResponse(false, ResponseMessages.TOKEN_EXPIRED, null));
+                    .body(CannedResponse.failure(ResponseMessages.TOKEN_EXPIRED));
         }
 
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(new ApiResponse(false, "Invalid or malformed token.", null));
+                .body(CannedResponse.failure("Invalid or malformed token."));
+    }
+
+    // Keycloak admin calls refused by KeycloakAdminGuard; nothing was changed
+    @ExceptionHandler(KeycloakUnavailableException.class)
+    public ResponseEntity<ApiResponse> handleKeycloakUnavailable(KeycloakUnavailableException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(CannedResponse.failure(ResponseMessages.KEYCLOAK_UNAVAILABLE));
     }
 
     @ExceptionHandler(Exception.class)
@@ -29,6 +39,6 @@ public class GlobalExceptionHandler {
         System.err.println("ERROR:");
         ex.printStackTrace();
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(new ApiResponse(false, ResponseMessages.INTERNAL_SERVER_ERROR, null));
+                .body(CannedResponse.failure(ResponseMessages.INTERNAL_SERVER_ERROR));
     }
 }
@@ -0,0 +1,27 @@
+package com.simpleshop.exception;
+
+// A Keycloak OIDC call that did not succeed. status is Keycloak's HTTP status,
+// or 0 when no response was received (connect/read timeout, pool exhausted...)
+public class KeycloakAuthException extends RuntimeException {
+
+    private final int status;
+
+    public KeycloakAuthException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public KeycloakAuthException(String message, Throwable cause) {
+        super(message, cause);
+        this.status = 0;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    // Keycloak answered and rejected the request (bad credentials, invalid token)
+    public boolean isRejected() {
+        return status >= 400 && status < 500;
+    }
+}
@@ -0,0 +1,10 @@
+package com.simpleshop.exception;
+
+// A Keycloak admin call that was not attempted: the circuit is open or the
+// operation's bulkhead is full
+public class KeycloakUnavailableException extends RuntimeException {
+
+    public KeycloakUnavailableException(String message) {
+        super(message);
+    }
+}
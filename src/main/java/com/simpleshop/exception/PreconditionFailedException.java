@@ -0,0 +1,16 @@
+package com.simpleshop.exception;
+
+// The If-Match version no longer matches the stored row
+public class PreconditionFailedException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public PreconditionFailedException(long currentVersion) {
+        super("Customer was modified (current version " + currentVersion + ")");
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -3,12 +3,14 @@ package com.simpleshop.mapper;
 import com.simpleshop.dto.CustomerDTO;
 import com.simpleshop.model.Customer;
 
+import java.util.UUID;
+
 public class CustomerMapper {
 
     public static CustomerDTO toDTO(Customer customer) {
         if (customer == null) return null;
         CustomerDTO dto = new CustomerDTO();
-        dto.setId(customer.getId());
+        dto.setId(customer.getId() == null ? null : customer.getId().toString());
         dto.setCustomerId(customer.getCustomerId());
         dto.setKeycloakId(customer.getKeycloakId());
         dto.setUserName(customer.getUserName());
@@ -16,13 +18,14 @@ public class CustomerMapper {
         dto.setLastName(customer.getLastName());
         dto.setEmail(customer.getEmail());
         dto.setActive(customer.isActive());
+        dto.setVersion(customer.getVersion());
         return dto;
     }
 
     public static Customer toEntity(CustomerDTO dto) {
         if (dto == null) return null;
         Customer c = new Customer();
-        c.setId(dto.getId());
+        c.setId(dto.getId() == null ? null : UUID.fromString(dto.getId()));
         c.setCustomerId(dto.getCustomerId());
         c.setKeycloakId(dto.getKeycloakId());
         c.setUserName(dto.getUserName());
@@ -30,6 +33,7 @@ public class CustomerMapper {
         c.setLastName(dto.getLastName());
         c.setEmail(dto.getEmail());
         c.setActive(dto.isActive());
+        c.setVersion(dto.getVersion());
         return c;
     }
 }
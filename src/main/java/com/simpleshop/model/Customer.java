@@ -4,20 +4,23 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+
+import java.util.UUID;
 
 @Entity
 @Table(name = "customers")
+@DynamicUpdate // UPDATE lists only the changed columns
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Customer {
 
+    // Native uuid column, time-ordered values
     @Id
-    @GeneratedValue(generator = "uuid2")
-    @GenericGenerator(name = "uuid2", strategy = "org.hibernate.id.UUIDGenerator")
-    @Column(columnDefinition = "CHAR(36)")
-    private String id;
+    @UuidV7Id
+    private UUID id;
 
     @Column(name = "customer_id", unique = true)
     private String customerId;
@@ -41,4 +44,10 @@ public class Customer {
 
     @Column(nullable = false)
     private boolean active = true;
+
+    // Optimistic lock and ETag source; bumped on every update (JPA and the JDBC writers)
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
 }
@@ -0,0 +1,21 @@
+package com.simpleshop.model;
+
+// Fine-grained rights granted through role definitions (role_definition_permissions).
+// Each permission is one bit of a long, so a principal's grants fit in a single word.
+// Append new constants at the end: ordinals are the bit positions (max 64).
+public enum Permission {
+    CUSTOMER_LIST,
+    CUSTOMER_READ_ANY,
+    CUSTOMER_UPDATE_ANY,
+    CUSTOMER_DELETE_ANY,
+    CUSTOMER_BLOCK,
+    CUSTOMER_IMPORT,
+    ROLE_MANAGE,
+    ADMIN_CONSOLE;
+
+    private final long mask = 1L << ordinal();
+
+    public long mask() {
+        return mask;
+    }
+}
@@ -0,0 +1,8 @@
+package com.simpleshop.model;
+
+public enum ProvisioningStatus {
+    PENDING,
+    IN_PROGRESS,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,52 @@
+package com.simpleshop.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Transactional outbox row: written in the same transaction as the customer,
+// drained by ProvisioningWorker which creates the matching Keycloak user.
+@Entity
+@Table(name = "provisioning_outbox", indexes = {
+        @Index(name = "idx_provisioning_outbox_status_next", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_provisioning_outbox_customer", columnList = "customer_id"),
+        @Index(name = "idx_provisioning_outbox_status_token", columnList = "status_token", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProvisioningTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "customer_id", nullable = false)
+    private String customerId;
+
+    // Random, handed only to the registrant: the public status endpoint is keyed on it
+    @Column(name = "status_token", length = 64)
+    private String statusToken;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ProvisioningStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
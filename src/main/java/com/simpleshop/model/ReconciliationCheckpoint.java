@@ -0,0 +1,41 @@
+package com.simpleshop.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Progress of KeycloakReconciler, so a restarted node resumes the current pass instead of
+// starting over. The lease keeps a second node from running the same pass concurrently.
+@Entity
+@Table(name = "reconciliation_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationCheckpoint {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    // Keycloak listing offset of the first chunk not yet reconciled in the current pass
+    @Column(name = "next_offset", nullable = false)
+    private int nextOffset;
+
+    @Column(name = "pass_started_at")
+    private Instant passStartedAt;
+
+    @Column(name = "last_completed_at")
+    private Instant lastCompletedAt;
+
+    @Column(name = "lease_owner", length = 128)
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -4,7 +4,8 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.GenericGenerator;
+
+import java.util.UUID;
 
 @Entity
 @Table(name = "roles")
@@ -13,17 +14,16 @@ import org.hibernate.annotations.GenericGenerator;
 @AllArgsConstructor
 public class Role {
 
+    // Native uuid column, time-ordered values
     @Id
-    @GeneratedValue(generator = "uuid2")
-    @GenericGenerator(name = "uuid2", strategy = "org.hibernate.id.UUIDGenerator")
-    @Column(columnDefinition = "CHAR(36)")
-    private String id;
+    @UuidV7Id
+    private UUID id;
 
     @Column(name = "role_name", nullable = false)
     private String roleName;
 
-    // Link to customer (foreign key)
-    @OneToOne
-    @JoinColumn(name = "customer_ref_id", referencedColumnName = "customer_id", unique = true)
+    // Link to customer (foreign key); a customer may hold several roles
+    @ManyToOne
+    @JoinColumn(name = "customer_ref_id", referencedColumnName = "customer_id")
     private Customer customer;
 }
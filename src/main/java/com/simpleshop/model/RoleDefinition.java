@@ -0,0 +1,29 @@
+package com.simpleshop.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// What a role name (Role.roleName, or a Keycloak realm role in the token) is allowed to do.
+// Edited in the database; PermissionRegistry picks changes up without a restart.
+@Entity
+@Table(name = "role_definitions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoleDefinition {
+
+    @Id
+    @Column(name = "role_name", length = 64)
+    private String roleName;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "role_definition_permissions", joinColumns = @JoinColumn(name = "role_name"))
+    @Enumerated(EnumType.STRING)
+    @Column(name = "permission", length = 64, nullable = false)
+    private Set<Permission> permissions = new HashSet<>();
+}
@@ -0,0 +1,200 @@
+package com.simpleshop.repository;
+
+import com.simpleshop.dto.CustomerDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Plain JDBC reads for the admin listing: rows are mapped straight to DTOs,
+// so no entity (and no password column) ever enters a persistence context.
+@Repository
+public class CustomerJdbcRepository {
+
+    private static final String SELECT_COLUMNS =
+            "SELECT id, customer_id, keycloak_id, username, first_name, last_name, email, active, version FROM customers";
+
+    public static final RowMapper<CustomerDTO> DTO_ROW_MAPPER = (rs, rowNum) -> toDTO(rs);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<CustomerDTO> findByCustomerId(String customerId) {
+        return jdbcTemplate.query(SELECT_COLUMNS + " WHERE customer_id = ?", DTO_ROW_MAPPER, customerId)
+                .stream().findFirst();
+    }
+
+    public Optional<CustomerDTO> findByKeycloakId(String keycloakId) {
+        return jdbcTemplate.query(SELECT_COLUMNS + " WHERE keycloak_id = ?", DTO_ROW_MAPPER, keycloakId)
+                .stream().findFirst();
+    }
+
+    // Keyset page: WHERE id > :afterId ORDER BY id LIMIT :limit (served by the primary key index)
+    public List<CustomerDTO> findPage(String afterId, Boolean active, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append(" WHERE 1 = 1");
+        List<Object> args = new ArrayList<>(3);
+
+        if (afterId != null) {
+            sql.append(" AND id > ?");
+            args.add(UUID.fromString(afterId));
+        }
+        if (active != null) {
+            sql.append(" AND active = ?");
+            args.add(active);
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+        args.add(limit);
+
+        return jdbcTemplate.query(sql.toString(), DTO_ROW_MAPPER, args.toArray());
+    }
+
+    // Forward-only, read-only cursor. On PostgreSQL the fetch size is only honoured
+    // inside a transaction (autocommit off), so callers must run this in one.
+    public void streamAll(Boolean active, int fetchSize, Consumer<CustomerDTO> consumer) {
+        String sql = SELECT_COLUMNS + (active != null ? " WHERE active = ?" : "") + " ORDER BY id";
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            if (active != null) ps.setBoolean(1, active);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(toDTO(rs)));
+    }
+
+    // Same cursor as streamAll, but only the requested columns and no DTO per row.
+    // Column names must come from a whitelist (they are concatenated into the SQL).
+    public void streamColumns(List<String> columns, Boolean active, int fetchSize, RowCallbackHandler handler) {
+        String sql = "SELECT " + String.join(", ", columns) + " FROM customers"
+                + (active != null ? " WHERE active = ?" : "") + " ORDER BY id";
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            if (active != null) ps.setBoolean(1, active);
+            return ps;
+        }, handler);
+    }
+
+    // Rows whose lower-cased username is in [fromInclusive, toExclusive); null means unbounded.
+    // Keycloak stores usernames lower-cased and lists them in that order (byte order assumed).
+    public List<CustomerDTO> findByUsernameRange(String fromInclusive, String toExclusive) {
+        StringBuilder sql = new StringBuilder(SELECT_COLUMNS).append(" WHERE 1 = 1");
+        List<Object> args = new ArrayList<>(2);
+
+        if (fromInclusive != null) {
+            sql.append(" AND lower(username) COLLATE \"C\" >= ?");
+            args.add(fromInclusive);
+        }
+        if (toExclusive != null) {
+            sql.append(" AND lower(username) COLLATE \"C\" < ?");
+            args.add(toExclusive);
+        }
+        sql.append(" ORDER BY lower(username) COLLATE \"C\"");
+
+        return jdbcTemplate.query(sql.toString(), DTO_ROW_MAPPER, args.toArray());
+    }
+
+    public int setKeycloakId(String customerId, String keycloakId) {
+        return jdbcTemplate.update("UPDATE customers SET keycloak_id = ?, version = version + 1 WHERE customer_id = ? AND keycloak_id IS NULL",
+                keycloakId, customerId);
+    }
+
+    // Just enough of a customer to drive bulk operations
+    public record CustomerRef(String customerId, String keycloakId) {
+    }
+
+    private static final RowMapper<CustomerRef> REF_ROW_MAPPER =
+            (rs, rowNum) -> new CustomerRef(rs.getString("customer_id"), rs.getString("keycloak_id"));
+
+    // One statement for any number of ids: customer_id = ANY(array)
+    public List<CustomerRef> findRefsByCustomerIds(Collection<String> customerIds) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT customer_id, keycloak_id FROM customers WHERE customer_id = ANY(?)");
+            ps.setArray(1, idArray(con, customerIds));
+            return ps;
+        }, REF_ROW_MAPPER);
+    }
+
+    public List<CustomerDTO> findByCustomerIds(Collection<String> customerIds) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_COLUMNS + " WHERE customer_id = ANY(?)");
+            ps.setArray(1, idArray(con, customerIds));
+            return ps;
+        }, DTO_ROW_MAPPER);
+    }
+
+    public List<CustomerRef> findRefsByFilter(Boolean active, String customerIdPrefix) {
+        StringBuilder sql = new StringBuilder("SELECT customer_id, keycloak_id FROM customers WHERE 1 = 1");
+        List<Object> args = new ArrayList<>(2);
+
+        if (active != null) {
+            sql.append(" AND active = ?");
+            args.add(active);
+        }
+        if (customerIdPrefix != null) {
+            sql.append(" AND customer_id LIKE ?");
+            args.add(customerIdPrefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        sql.append(" ORDER BY customer_id");
+
+        return jdbcTemplate.query(sql.toString(), REF_ROW_MAPPER, args.toArray());
+    }
+
+    // Rows already in the requested state are left alone
+    public int setActive(Collection<String> customerIds, boolean active) {
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "UPDATE customers SET active = ?, version = version + 1 WHERE customer_id = ANY(?) AND active <> ?");
+            ps.setBoolean(1, active);
+            ps.setArray(2, idArray(con, customerIds));
+            ps.setBoolean(3, active);
+            return ps;
+        });
+    }
+
+    // Roles first (FK to customers.customer_id); callers run both in one transaction
+    public int deleteWithRoles(Collection<String> customerIds) {
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("DELETE FROM roles WHERE customer_ref_id = ANY(?)");
+            ps.setArray(1, idArray(con, customerIds));
+            return ps;
+        });
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("DELETE FROM customers WHERE customer_id = ANY(?)");
+            ps.setArray(1, idArray(con, customerIds));
+            return ps;
+        });
+    }
+
+    private static Array idArray(java.sql.Connection con, Collection<String> customerIds) throws java.sql.SQLException {
+        return con.createArrayOf("varchar", customerIds.toArray());
+    }
+
+    private static CustomerDTO toDTO(ResultSet rs) throws java.sql.SQLException {
+        return new CustomerDTO(
+                rs.getString("id"),
+                rs.getString("customer_id"),
+                rs.getString("keycloak_id"),
+                rs.getString("username"),
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                rs.getString("email"),
+                rs.getBoolean("active"),
+                rs.getLong("version")
+        );
+    }
+}
@@ -2,10 +2,25 @@ package com.simpleshop.repository;
 
 import com.simpleshop.model.Customer;
 import org.springframework.data.jpa.repository.JpaRepository; //providing database operations without writing SQL.
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.Optional;
+import java.util.UUID;
 
-public interface CustomerRepository extends JpaRepository<Customer, Long> {
+public interface CustomerRepository extends JpaRepository<Customer, UUID> {
     Optional<Customer> findByCustomerId(String customerId);
     Optional<Customer> findByKeycloakId(String keycloakId);
+    boolean existsByCustomerId(String customerId);
+
+    // Ownership check without loading the entity (select ... limit 1 on the customer_id index)
+    boolean existsByCustomerIdAndKeycloakId(String customerId, String keycloakId);
+
+    // Conditional GETs: the version alone decides between 304 and a full read
+    @Query("select c.version from Customer c where c.customerId = :customerId")
+    Optional<Long> findVersionByCustomerId(@Param("customerId") String customerId);
+
+    @Query("select c.version from Customer c where c.keycloakId = :keycloakId")
+    Optional<Long> findVersionByKeycloakId(@Param("keycloakId") String keycloakId);
 
 }
\ No newline at end of file
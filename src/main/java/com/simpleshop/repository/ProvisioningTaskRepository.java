@@ -0,0 +1,12 @@
+package com.simpleshop.repository;
+
+import com.simpleshop.model.ProvisioningTask;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface ProvisioningTaskRepository extends JpaRepository<ProvisioningTask, Long> {
+    Optional<ProvisioningTask> findTopByCustomerIdOrderByIdDesc(String customerId);
+
+    Optional<ProvisioningTask> findByStatusToken(String statusToken);
+}
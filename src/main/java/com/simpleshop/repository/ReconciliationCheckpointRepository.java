@@ -0,0 +1,7 @@
+package com.simpleshop.repository;
+
+import com.simpleshop.model.ReconciliationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ReconciliationCheckpointRepository extends JpaRepository<ReconciliationCheckpoint, String> {
+}
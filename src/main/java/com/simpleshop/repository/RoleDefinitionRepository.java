@@ -0,0 +1,7 @@
+package com.simpleshop.repository;
+
+import com.simpleshop.model.RoleDefinition;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface RoleDefinitionRepository extends JpaRepository<RoleDefinition, String> {
+}
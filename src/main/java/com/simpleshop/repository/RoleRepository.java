@@ -3,11 +3,26 @@ package com.simpleshop.repository;
 import com.simpleshop.model.Customer;
 import com.simpleshop.model.Role;
 import org.springframework.data.jpa.repository.JpaRepository; //providing database operations without writing SQL.
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-import java.util.Optional;
+import java.util.List;
+import java.util.UUID;
 
-public interface RoleRepository extends JpaRepository<Role, Long> {
-    Optional<Role> findByCustomer_CustomerId(String customerId);
-    void deleteByCustomer(Customer customer);
+public interface RoleRepository extends JpaRepository<Role, UUID> {
+    List<Role> findByCustomer_CustomerId(String customerId);
+
+    // Scalar projections: role names only, no Role/Customer entities in the persistence context
+    @Query("select r.roleName from Role r where r.customer.customerId = :customerId")
+    List<String> findRoleNamesByCustomerId(@Param("customerId") String customerId);
+
+    @Query("select r.roleName from Role r where r.customer.keycloakId = :keycloakId")
+    List<String> findRoleNamesByKeycloakId(@Param("keycloakId") String keycloakId);
+
+    // Single DELETE statement instead of the derived load-then-remove
+    @Modifying
+    @Query("delete from Role r where r.customer = :customer")
+    void deleteByCustomer(@Param("customer") Customer customer);
 
 }
@@ -0,0 +1,62 @@
+package com.simpleshop.response;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.simpleshop.dto.CustomerDTO;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+import java.util.List;
+
+// ApiResponse.data is an Object, so the bean serializer resolves a serializer for it on
+// every response. The envelope and the common payloads (CustomerDTO and lists of it) are
+// written field by field here instead; everything else goes through Jackson as before.
+// Output is identical to the reflective form (same names, order and nulls).
+@JsonComponent
+public class ApiResponseSerializer extends StdSerializer<ApiResponse> {
+
+    public ApiResponseSerializer() {
+        super(ApiResponse.class);
+    }
+
+    @Override
+    public void serialize(ApiResponse value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+        gen.writeBooleanField("success", value.isSuccess());
+        gen.writeStringField("message", value.getMessage());
+        gen.writeFieldName("data");
+
+        Object data = value.getData();
+        if (data == null) {
+            gen.writeNull();
+        } else if (data instanceof CustomerDTO customer) {
+            writeCustomer(customer, gen);
+        } else if (data instanceof List<?> list) {
+            gen.writeStartArray(list, list.size());
+            for (Object item : list) {
+                if (item instanceof CustomerDTO customer) writeCustomer(customer, gen);
+                else provider.defaultSerializeValue(item, gen);
+            }
+            gen.writeEndArray();
+        } else {
+            provider.defaultSerializeValue(data, gen);
+        }
+
+        gen.writeEndObject();
+    }
+
+    static void writeCustomer(CustomerDTO customer, JsonGenerator gen) throws IOException {
+        gen.writeStartObject(customer);
+        gen.writeStringField("id", customer.getId());
+        gen.writeStringField("customerId", customer.getCustomerId());
+        gen.writeStringField("keycloakId", customer.getKeycloakId());
+        gen.writeStringField("userName", customer.getUserName());
+        gen.writeStringField("firstName", customer.getFirstName());
+        gen.writeStringField("lastName", customer.getLastName());
+        gen.writeStringField("email", customer.getEmail());
+        gen.writeBooleanField("active", customer.isActive());
+        gen.writeNumberField("version", customer.getVersion());
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,60 @@
+package com.simpleshop.response;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Envelope without data whose JSON never changes (access denied, not found, deleted, ...).
+// Serialized once on first use and then written as bytes by CannedResponseConverter.
+// Only pass constant messages: every distinct message is kept for the life of the process.
+public final class CannedResponse extends ApiResponse {
+
+    private static final ConcurrentMap<String, CannedResponse> SUCCESSES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, CannedResponse> FAILURES = new ConcurrentHashMap<>();
+
+    private volatile byte[] json;
+
+    private CannedResponse(boolean success, String message) {
+        super(success, message, null);
+    }
+
+    public static CannedResponse success(String message) {
+        return SUCCESSES.computeIfAbsent(message, m -> new CannedResponse(true, m));
+    }
+
+    public static CannedResponse failure(String message) {
+        return FAILURES.computeIfAbsent(message, m -> new CannedResponse(false, m));
+    }
+
+    // Serialized with the application's mapper, so the bytes match what Jackson would write
+    public byte[] json(ObjectMapper objectMapper) {
+        byte[] bytes = json;
+        if (bytes == null) {
+            try {
+                bytes = objectMapper.writeValueAsBytes(this);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot serialize canned response: " + getMessage(), e);
+            }
+            json = bytes;
+        }
+        return bytes;
+    }
+
+    // Shared instances: never mutable
+    @Override
+    public void setSuccess(boolean success) {
+        throw new UnsupportedOperationException("CannedResponse is immutable");
+    }
+
+    @Override
+    public void setMessage(String message) {
+        throw new UnsupportedOperationException("CannedResponse is immutable");
+    }
+
+    @Override
+    public void setData(Object data) {
+        throw new UnsupportedOperationException("CannedResponse is immutable");
+    }
+}
@@ -0,0 +1,47 @@
+package com.simpleshop.response;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+// Writes CannedResponse bodies from their cached bytes. Registered ahead of the Jackson
+// converter (see WebConfig); anything else falls through to Jackson as before.
+public class CannedResponseConverter extends AbstractHttpMessageConverter<CannedResponse> {
+
+    private final ObjectMapper objectMapper;
+
+    public CannedResponseConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return CannedResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected CannedResponse readInternal(Class<? extends CannedResponse> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("CannedResponse is write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(CannedResponse response, MediaType contentType) {
+        return (long) response.json(objectMapper).length;
+    }
+
+    @Override
+    protected void writeInternal(CannedResponse response, HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getBody().write(response.json(objectMapper));
+    }
+}
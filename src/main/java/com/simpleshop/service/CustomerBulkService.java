@@ -0,0 +1,200 @@
+package com.simpleshop.service;
+
+import com.simpleshop.dto.BulkCustomerRequest;
+import com.simpleshop.dto.BulkOutcomeDTO;
+import com.simpleshop.dto.BulkReportDTO;
+import com.simpleshop.event.CustomerChangedEvent;
+import com.simpleshop.repository.CustomerJdbcRepository;
+import com.simpleshop.repository.CustomerJdbcRepository.CustomerRef;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+// Block / unblock / delete for many customers at once.
+// Targets are resolved with one query, Keycloak calls fan out over a bounded pool,
+// and the customers whose Keycloak change went through are updated with one set-based statement.
+@Service
+public class CustomerBulkService {
+
+    private final CustomerJdbcRepository customerJdbcRepo;
+    private final KeycloakService keycloakService;
+    private final RevocationService revocationService;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate tx;
+    private final int maxTargets;
+    private final ExecutorService keycloakPool;
+
+    public CustomerBulkService(CustomerJdbcRepository customerJdbcRepo,
+                               KeycloakService keycloakService,
+                               RevocationService revocationService,
+                               ApplicationEventPublisher events,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${customer.bulk.keycloak-concurrency:8}") int keycloakConcurrency,
+                               @Value("${customer.bulk.max-targets:50000}") int maxTargets) {
+        this.customerJdbcRepo = customerJdbcRepo;
+        this.keycloakService = keycloakService;
+        this.revocationService = revocationService;
+        this.events = events;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.maxTargets = maxTargets;
+        this.keycloakPool = Executors.newFixedThreadPool(keycloakConcurrency);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        keycloakPool.shutdown();
+    }
+
+    @FunctionalInterface
+    private interface KeycloakCall {
+        void apply(String keycloakId) throws Exception;
+    }
+
+    public BulkReportDTO block(BulkCustomerRequest request) {
+        long started = System.nanoTime();
+        Targets targets = resolve(request);
+
+        // Deny existing tokens right away instead of after the whole Keycloak fan-out.
+        // Only the denials added here are undone on failure; a subject that was already
+        // denied (blocked or logged out elsewhere) stays denied.
+        Set<String> newlyDenied = new HashSet<>();
+        for (CustomerRef t : targets.found) {
+            if (revocationService.blockSubject(t.keycloakId())) newlyDenied.add(t.keycloakId());
+        }
+
+        Map<String, String> errors = fanOut(targets.found, keycloakService::bulkDisableUser);
+        revocationService.unblockSubjects(targets.found.stream()
+                .filter(t -> errors.containsKey(t.customerId()) && newlyDenied.contains(t.keycloakId()))
+                .map(CustomerRef::keycloakId)
+                .toList());
+
+        return finish("block", started, targets, errors, ids -> customerJdbcRepo.setActive(ids, false));
+    }
+
+    public BulkReportDTO unblock(BulkCustomerRequest request) {
+        long started = System.nanoTime();
+        Targets targets = resolve(request);
+
+        Map<String, String> errors = fanOut(targets.found, keycloakService::bulkEnableUser);
+        revocationService.unblockSubjects(targets.found.stream()
+                .filter(t -> !errors.containsKey(t.customerId()))
+                .map(CustomerRef::keycloakId)
+                .toList());
+
+        return finish("unblock", started, targets, errors, ids -> customerJdbcRepo.setActive(ids, true));
+    }
+
+    public BulkReportDTO delete(BulkCustomerRequest request) {
+        long started = System.nanoTime();
+        Targets targets = resolve(request);
+
+        Map<String, String> errors = fanOut(targets.found, kcId -> {
+            if (!keycloakService.bulkDeleteUser(kcId)) {
+                throw new IllegalStateException("Keycloak delete failed");
+            }
+        });
+
+        return finish("delete", started, targets, errors, customerJdbcRepo::deleteWithRoles);
+    }
+
+    private record Targets(List<String> notFound, List<CustomerRef> found) {
+    }
+
+    private Targets resolve(BulkCustomerRequest request) {
+        List<String> ids = request.getCustomerIds();
+        boolean hasIds = ids != null && !ids.isEmpty();
+        boolean hasFilter = request.getActive() != null
+                || (request.getCustomerIdPrefix() != null && !request.getCustomerIdPrefix().isBlank());
+
+        if (hasIds == hasFilter) {
+            throw new IllegalArgumentException("Provide either customerIds or a filter (active, customerIdPrefix)");
+        }
+
+        if (hasIds) {
+            Set<String> requested = new LinkedHashSet<>(ids);
+            checkSize(requested.size());
+
+            List<CustomerRef> found = customerJdbcRepo.findRefsByCustomerIds(requested);
+            found.forEach(ref -> requested.remove(ref.customerId()));
+            return new Targets(new ArrayList<>(requested), found);
+        }
+
+        String prefix = request.getCustomerIdPrefix() == null || request.getCustomerIdPrefix().isBlank()
+                ? null : request.getCustomerIdPrefix();
+        List<CustomerRef> found = customerJdbcRepo.findRefsByFilter(request.getActive(), prefix);
+        checkSize(found.size());
+        return new Targets(List.of(), found);
+    }
+
+    private void checkSize(int size) {
+        if (size > maxTargets) {
+            throw new IllegalArgumentException("Too many customers (" + size + "), limit is " + maxTargets);
+        }
+    }
+
+    // customerId -> error for every call that failed. Customers that were never
+    // provisioned in Keycloak have nothing to change there and count as done.
+    private Map<String, String> fanOut(List<CustomerRef> targets, KeycloakCall call) {
+        Map<String, Future<?>> futures = new LinkedHashMap<>();
+        for (CustomerRef target : targets) {
+            if (target.keycloakId() == null) continue;
+            futures.put(target.customerId(), keycloakPool.submit(() -> {
+                call.apply(target.keycloakId());
+                return null;
+            }));
+        }
+
+        Map<String, String> errors = new HashMap<>();
+        futures.forEach((customerId, future) -> {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors.put(customerId, "Interrupted");
+            } catch (ExecutionException e) {
+                errors.put(customerId, e.getCause().getClass().getSimpleName() + ": " + e.getCause().getMessage());
+            }
+        });
+        return errors;
+    }
+
+    private BulkReportDTO finish(String operation, long started, Targets targets, Map<String, String> errors,
+                                 Consumer<List<String>> applyInDb) {
+        List<String> succeeded = new ArrayList<>(targets.found.size());
+        for (CustomerRef target : targets.found) {
+            if (!errors.containsKey(target.customerId())) succeeded.add(target.customerId());
+        }
+
+        if (!succeeded.isEmpty()) {
+            try {
+                tx.executeWithoutResult(status -> {
+                    applyInDb.accept(succeeded);
+                    succeeded.forEach(id -> events.publishEvent(new CustomerChangedEvent(id)));
+                });
+            } catch (Exception e) {
+                System.err.println("Bulk " + operation + " DB update failed: " + e.getMessage());
+                succeeded.forEach(id -> errors.put(id, "Database update failed"));
+                succeeded.clear();
+            }
+        }
+
+        List<BulkOutcomeDTO> results = new ArrayList<>(targets.found.size() + targets.notFound.size());
+        for (CustomerRef target : targets.found) {
+            String error = errors.get(target.customerId());
+            results.add(new BulkOutcomeDTO(target.customerId(), error == null ? "DONE" : "FAILED", error));
+        }
+        for (String id : targets.notFound) {
+            results.add(new BulkOutcomeDTO(id, "NOT_FOUND", null));
+        }
+
+        return new BulkReportDTO(operation, targets.found.size(), succeeded.size(), errors.size(),
+                targets.notFound.size(), (System.nanoTime() - started) / 1_000_000, results);
+    }
+}
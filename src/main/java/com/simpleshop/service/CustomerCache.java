@@ -0,0 +1,106 @@
+package com.simpleshop.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.simpleshop.dto.CustomerDTO;
+import com.simpleshop.event.CustomerChangedEvent;
+import com.simpleshop.repository.CustomerJdbcRepository;
+import com.simpleshop.util.CacheStatistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Read-through cache of customer DTOs by customerId, plus a keycloakId -> customerId index
+// so each customer is held once. Concurrent misses for the same key share one query.
+// Misses (unknown ids) are not cached. Entries are dropped after commit of any change
+// (CustomerChangedEvent) and otherwise expire after the TTL.
+@Component
+public class CustomerCache {
+
+    private final CustomerJdbcRepository customerJdbcRepo;
+
+    private final Cache<String, CustomerDTO> byCustomerId;
+    private final Cache<String, String> customerIdByKeycloakId;
+
+    public CustomerCache(CustomerJdbcRepository customerJdbcRepo,
+                         @Value("${customer.cache.max-size:100000}") long maxSize,
+                         @Value("${customer.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.customerJdbcRepo = customerJdbcRepo;
+
+        this.byCustomerId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        this.customerIdByKeycloakId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+
+    // Callers must treat the DTO as read-only: it is shared
+    public CustomerDTO getByCustomerId(String customerId) {
+        return byCustomerId.get(customerId, id -> customerJdbcRepo.findByCustomerId(id).orElse(null));
+    }
+
+    public CustomerDTO getByKeycloakId(String keycloakId) {
+        String customerId = customerIdByKeycloakId.get(keycloakId, kcId ->
+                customerJdbcRepo.findByKeycloakId(kcId)
+                        .map(dto -> {
+                            byCustomerId.put(dto.getCustomerId(), dto);
+                            return dto.getCustomerId();
+                        })
+                        .orElse(null));
+        if (customerId == null) return null;
+
+        CustomerDTO dto = getByCustomerId(customerId);
+        if (dto == null || !keycloakId.equals(dto.getKeycloakId())) {
+            customerIdByKeycloakId.invalidate(keycloakId);
+            return null;
+        }
+        return dto;
+    }
+
+    // Cached entry only, never goes to the database
+    public CustomerDTO peek(String customerId) {
+        return byCustomerId.getIfPresent(customerId);
+    }
+
+    public CustomerDTO peekByKeycloakId(String keycloakId) {
+        String customerId = customerIdByKeycloakId.getIfPresent(keycloakId);
+        if (customerId == null) return null;
+        CustomerDTO dto = byCustomerId.getIfPresent(customerId);
+        return dto != null && keycloakId.equals(dto.getKeycloakId()) ? dto : null;
+    }
+
+    public void invalidate(String customerId) {
+        CustomerDTO dto = byCustomerId.asMap().remove(customerId);
+        if (dto != null && dto.getKeycloakId() != null) {
+            customerIdByKeycloakId.invalidate(dto.getKeycloakId());
+        }
+    }
+
+    public void invalidateAll() {
+        byCustomerId.invalidateAll();
+        customerIdByKeycloakId.invalidateAll();
+    }
+
+    // Also fires without a transaction (bulk import workers, JDBC-only paths)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        invalidate(event.customerId());
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("byCustomerId", CacheStatistics.describe(byCustomerId));
+        stats.put("byKeycloakId", CacheStatistics.describe(customerIdByKeycloakId));
+        return stats;
+    }
+}
@@ -0,0 +1,180 @@
+package com.simpleshop.service;
+
+import com.simpleshop.repository.CustomerJdbcRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+// Full customer extracts. Rows go from the JDBC cursor straight into a buffered writer,
+// so memory use depends on the fetch size and buffer, not on the number of customers.
+@Service
+public class CustomerExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    // Export name -> column; also the whitelist for CustomerJdbcRepository.streamColumns
+    private static final Map<String, String> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("id", "id");
+        COLUMNS.put("customerId", "customer_id");
+        COLUMNS.put("keycloakId", "keycloak_id");
+        COLUMNS.put("userName", "username");
+        COLUMNS.put("firstName", "first_name");
+        COLUMNS.put("lastName", "last_name");
+        COLUMNS.put("email", "email");
+        COLUMNS.put("active", "active");
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CustomerJdbcRepository customerJdbcRepo;
+    private final TransactionTemplate readOnlyTx;
+    private final int fetchSize;
+
+    public CustomerExportService(CustomerJdbcRepository customerJdbcRepo,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${customer.export.fetch-size:5000}") int fetchSize) {
+        this.customerJdbcRepo = customerJdbcRepo;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    // "customerId,email" -> validated export names, in the requested order. Null/blank means all.
+    public List<String> resolveColumns(String requested) {
+        if (requested == null || requested.isBlank()) return new ArrayList<>(COLUMNS.keySet());
+
+        List<String> columns = new ArrayList<>();
+        for (String name : requested.split(",")) {
+            String column = name.trim();
+            if (!COLUMNS.containsKey(column)) {
+                throw new IllegalArgumentException("Unknown column '" + column + "'. Allowed: " + COLUMNS.keySet());
+            }
+            if (!columns.contains(column)) columns.add(column);
+        }
+        return columns;
+    }
+
+    public void export(Format format, List<String> columns, Boolean active, boolean gzip, OutputStream out) throws IOException {
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(gzip ? gzipOut : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        if (format == Format.CSV) {
+            writer.write(String.join(",", columns));
+            writer.write('\n');
+        }
+
+        List<String> sqlColumns = columns.stream().map(COLUMNS::get).toList();
+        RowCallbackHandler rowWriter = format == Format.CSV
+                ? csvRows(writer, columns)
+                : ndjsonRows(writer, columns);
+
+        // PostgreSQL only streams with a fetch size inside a transaction
+        try {
+            readOnlyTx.executeWithoutResult(status -> customerJdbcRepo.streamColumns(sqlColumns, active, fetchSize, rowWriter));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        writer.flush();
+        if (gzipOut != null) gzipOut.finish();
+    }
+
+    private static RowCallbackHandler csvRows(Writer writer, List<String> columns) {
+        boolean[] flags = booleanColumns(columns);
+        return rs -> {
+            try {
+                for (int i = 0; i < flags.length; i++) {
+                    if (i > 0) writer.write(',');
+                    if (flags[i]) writer.write(rs.getBoolean(i + 1) ? "true" : "false");
+                    else writeCsv(writer, rs.getString(i + 1));
+                }
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static RowCallbackHandler ndjsonRows(Writer writer, List<String> columns) {
+        boolean[] flags = booleanColumns(columns);
+        // "{\"customerId\":", ",\"email\":", ...
+        String[] prefixes = new String[columns.size()];
+        for (int i = 0; i < prefixes.length; i++) {
+            prefixes[i] = (i == 0 ? "{\"" : ",\"") + columns.get(i) + "\":";
+        }
+        return rs -> {
+            try {
+                for (int i = 0; i < flags.length; i++) {
+                    writer.write(prefixes[i]);
+                    if (flags[i]) writer.write(rs.getBoolean(i + 1) ? "true" : "false");
+                    else writeJson(writer, rs.getString(i + 1));
+                }
+                writer.write("}\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static boolean[] booleanColumns(List<String> columns) {
+        boolean[] flags = new boolean[columns.size()];
+        for (int i = 0; i < flags.length; i++) flags[i] = "active".equals(columns.get(i));
+        return flags;
+    }
+
+    // RFC 4180: quote only when needed, double embedded quotes; null is an empty field
+    static void writeCsv(Writer writer, String value) throws IOException {
+        if (value == null) return;
+
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') writer.write('"');
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    static void writeJson(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) writer.write(String.format("\\u%04x", (int) c));
+                    else writer.write(c);
+                }
+            }
+        }
+        writer.write('"');
+    }
+}
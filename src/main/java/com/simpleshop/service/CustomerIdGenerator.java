@@ -0,0 +1,8 @@
+package com.simpleshop.service;
+
+// Source of CUS_ddMMyy_XXXX business ids, shared by registration and bulk import.
+// Pick the implementation with customer.id.generator=sequence (default) or random.
+public interface CustomerIdGenerator {
+
+    String next();
+}
@@ -0,0 +1,115 @@
+package com.simpleshop.service;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Node id for SequenceCustomerIdGenerator leased from customer_id_node_leases, for nodes
+// started without customer.id.node-id. An id is claimed by inserting its row (or taking
+// over an expired one) and renewed every third of the lease. Locally the lease counts as
+// lost a little before the database could hand it to someone else, so two nodes never
+// generate with the same id even when renewals stop getting through.
+final class CustomerIdNodeLease {
+
+    private static final String FREE_IDS_SQL = """
+            SELECT n FROM generate_series(0, ?) n
+             WHERE n NOT IN (SELECT node_id FROM customer_id_node_leases WHERE lease_until >= now())
+             ORDER BY n
+             LIMIT 32
+            """;
+
+    private static final String CLAIM_SQL = """
+            INSERT INTO customer_id_node_leases (node_id, owner, lease_until)
+            VALUES (?, ?, now() + ? * interval '1 second')
+            ON CONFLICT (node_id) DO UPDATE SET owner = EXCLUDED.owner, lease_until = EXCLUDED.lease_until
+             WHERE customer_id_node_leases.lease_until < now()
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int nodeId;
+    private final String owner;
+    private final long leaseSeconds;
+    private final ScheduledExecutorService renewer;
+    private volatile long heldUntilNanos;
+
+    private CustomerIdNodeLease(JdbcTemplate jdbcTemplate, int nodeId, String owner, long leaseSeconds, long claimedAtNanos) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodeId = nodeId;
+        this.owner = owner;
+        this.leaseSeconds = leaseSeconds;
+        this.heldUntilNanos = claimedAtNanos + safeLeaseNanos();
+
+        this.renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread t = new Thread(runnable, "customer-id-node-lease");
+            t.setDaemon(true);
+            return t;
+        });
+        long renewMillis = Math.max(1000, leaseSeconds * 1000 / 3);
+        renewer.scheduleWithFixedDelay(this::renew, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Fails (and with it the startup) when the table is missing or every id is taken
+    static CustomerIdNodeLease acquire(JdbcTemplate jdbcTemplate, int maxNodeId, long leaseSeconds) {
+        String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+        try {
+            List<Integer> free = jdbcTemplate.queryForList(FREE_IDS_SQL, Integer.class, maxNodeId);
+            for (int candidate : free) {
+                // Another node may claim the same id between the query and here; the insert decides
+                long claimedAt = System.nanoTime();
+                if (jdbcTemplate.update(CLAIM_SQL, candidate, owner, leaseSeconds) == 1) {
+                    return new CustomerIdNodeLease(jdbcTemplate, candidate, owner, leaseSeconds, claimedAt);
+                }
+            }
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("customer.id.node-id is not set and no node id could be leased"
+                    + " (apply db/customer-id-node-leases-migration.sql)", e);
+        }
+        throw new IllegalStateException("customer.id.node-id is not set and every node id is leased");
+    }
+
+    int nodeId() {
+        return nodeId;
+    }
+
+    boolean isHeld() {
+        return System.nanoTime() - heldUntilNanos < 0;
+    }
+
+    void release() {
+        renewer.shutdownNow();
+        try {
+            jdbcTemplate.update("DELETE FROM customer_id_node_leases WHERE node_id = ? AND owner = ?", nodeId, owner);
+        } catch (DataAccessException e) {
+            // Expires on its own
+        }
+    }
+
+    private void renew() {
+        long renewedAt = System.nanoTime();
+        try {
+            int updated = jdbcTemplate.update(
+                    "UPDATE customer_id_node_leases SET lease_until = now() + ? * interval '1 second' WHERE node_id = ? AND owner = ?",
+                    leaseSeconds, nodeId, owner);
+            if (updated == 1) {
+                heldUntilNanos = renewedAt + safeLeaseNanos();
+                return;
+            }
+            heldUntilNanos = renewedAt;
+            renewer.shutdown();
+            System.err.println("Customer id node lease " + nodeId + " was taken over; no more ids from this node");
+        } catch (DataAccessException e) {
+            System.err.println("Customer id node lease renewal failed: " + e.getMessage());
+        }
+    }
+
+    // 90% of the lease, measured from before the statement was sent
+    private long safeLeaseNanos() {
+        return TimeUnit.SECONDS.toNanos(leaseSeconds) / 10 * 9;
+    }
+}
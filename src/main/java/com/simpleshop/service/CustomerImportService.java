@@ -0,0 +1,392 @@
+package com.simpleshop.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simpleshop.dto.CustomerImportRow;
+import com.simpleshop.dto.ImportRowResult;
+import com.simpleshop.event.CustomerChangedEvent;
+import com.simpleshop.exception.KeycloakUnavailableException;
+import com.simpleshop.util.UuidV7;
+import jakarta.annotation.PreDestroy;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Bulk onboarding of partner customer lists. The upload is read line by line, in chunks:
+// each chunk is inserted with JDBC batches in one transaction, then handed to a bounded pool
+// that provisions the chunk's Keycloak users with a single partial-import call.
+// Per-row results are streamed back as NDJSON, followed by a summary line.
+@Service
+public class CustomerImportService {
+
+    private static final String INSERT_CUSTOMER =
+            "INSERT INTO customers (id, customer_id, keycloak_id, username, first_name, last_name, email, password, active, version) " +
+            "VALUES (?, ?, NULL, ?, ?, ?, ?, NULL, ?, 0)";
+    private static final String INSERT_ROLE = "INSERT INTO roles (id, role_name, customer_ref_id) VALUES (?, 'USER', ?)";
+    private static final String SET_KEYCLOAK_ID = "UPDATE customers SET keycloak_id = ?, version = version + 1 WHERE customer_id = ?";
+    private static final String DELETE_ROLE = "DELETE FROM roles WHERE customer_ref_id = ?";
+    private static final String DELETE_CUSTOMER = "DELETE FROM customers WHERE customer_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final TransactionTemplate tx;
+    private final KeycloakService keycloakService;
+    private final CustomerIdGenerator customerIdGenerator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher events;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ExecutorService provisioningPool;
+
+    public CustomerImportService(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 KeycloakService keycloakService,
+                                 CustomerIdGenerator customerIdGenerator,
+                                 ObjectMapper objectMapper,
+                                 ApplicationEventPublisher events,
+                                 @Value("${customer.import.chunk-size:500}") int chunkSize,
+                                 @Value("${customer.import.parallelism:4}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.tx = new TransactionTemplate(transactionManager);
+        this.keycloakService = keycloakService;
+        this.customerIdGenerator = customerIdGenerator;
+        this.objectMapper = objectMapper;
+        this.events = events;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.provisioningPool = Executors.newFixedThreadPool(parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        provisioningPool.shutdown();
+    }
+
+    private static final class PendingRow {
+        final long row;
+        final CustomerImportRow data;
+        UUID id;
+        String customerId;
+
+        PendingRow(long row, CustomerImportRow data) {
+            this.row = row;
+            this.data = data;
+        }
+    }
+
+    public void importCustomers(InputStream in, boolean csv, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        Map<String, Long> counts = new TreeMap<>();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String[] header = csv ? parseCsvLine(nextNonBlank(reader)) : null;
+
+        try (JsonGenerator gen = objectMapper.createGenerator(out)) {
+            gen.setRootValueSeparator(null);
+
+            Deque<Future<List<ImportRowResult>>> inFlight = new ArrayDeque<>();
+            List<PendingRow> chunk = new ArrayList<>(chunkSize);
+            long rowNo = 0;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                rowNo++;
+
+                CustomerImportRow row;
+                try {
+                    row = csv ? fromCsv(header, parseCsvLine(line)) : objectMapper.readValue(line, CustomerImportRow.class);
+                } catch (Exception e) {
+                    write(gen, counts, List.of(new ImportRowResult(rowNo, "INVALID", null, null, "Unparseable record")));
+                    continue;
+                }
+
+                String problem = validate(row);
+                if (problem != null) {
+                    write(gen, counts, List.of(new ImportRowResult(rowNo, "INVALID", null, row.getEmail(), problem)));
+                    continue;
+                }
+
+                chunk.add(new PendingRow(rowNo, row));
+                if (chunk.size() == chunkSize) {
+                    submitChunk(chunk, inFlight, gen, counts);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+
+            if (!chunk.isEmpty()) submitChunk(chunk, inFlight, gen, counts);
+            while (!inFlight.isEmpty()) write(gen, counts, await(inFlight.poll()));
+
+            long total = counts.values().stream().mapToLong(Long::longValue).sum();
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("total", total);
+            summary.putAll(counts);
+            summary.put("elapsedMillis", Math.round(seconds * 1000));
+            summary.put("rowsPerSecond", seconds > 0 ? Math.round(total / seconds) : total);
+            gen.writeObject(Map.of("summary", summary));
+            gen.writeRaw('\n');
+        }
+    }
+
+    // DB insert happens here on the request thread; the Keycloak half runs on the pool.
+    // At most `parallelism` chunks are being provisioned at a time.
+    private void submitChunk(List<PendingRow> chunk, Deque<Future<List<ImportRowResult>>> inFlight,
+                             JsonGenerator gen, Map<String, Long> counts) throws IOException {
+        List<ImportRowResult> results = new ArrayList<>();
+        List<PendingRow> inserted = insertChunk(chunk, results);
+        write(gen, counts, results);
+
+        if (inserted.isEmpty()) return;
+
+        while (inFlight.size() >= parallelism) {
+            write(gen, counts, await(inFlight.poll()));
+        }
+        inFlight.add(provisioningPool.submit(() -> provisionChunk(inserted)));
+    }
+
+    private List<PendingRow> insertChunk(List<PendingRow> chunk, List<ImportRowResult> results) {
+        // Duplicates against the table and within the chunk itself. Keycloak compares usernames and
+        // emails case-insensitively, so two rows differing only in case would collide there.
+        Set<String> emails = new HashSet<>();
+        Set<String> userNames = new HashSet<>();
+        for (PendingRow r : chunk) {
+            emails.add(r.data.getEmail().toLowerCase());
+            userNames.add(r.data.getUserName().toLowerCase());
+        }
+        Set<String> existingEmails = new HashSet<>(namedJdbc.queryForList(
+                "SELECT lower(email) FROM customers WHERE lower(email) IN (:emails)", Map.of("emails", emails), String.class));
+        Set<String> existingUserNames = new HashSet<>(namedJdbc.queryForList(
+                "SELECT lower(username) COLLATE \"C\" FROM customers WHERE lower(username) COLLATE \"C\" IN (:userNames)",
+                Map.of("userNames", userNames), String.class));
+
+        Set<String> seenEmails = new HashSet<>();
+        Set<String> seenUserNames = new HashSet<>();
+        List<PendingRow> fresh = new ArrayList<>(chunk.size());
+        for (PendingRow r : chunk) {
+            String email = r.data.getEmail();
+            String emailKey = email.toLowerCase();
+            String userNameKey = r.data.getUserName().toLowerCase();
+            if (existingEmails.contains(emailKey) || seenEmails.contains(emailKey)) {
+                results.add(new ImportRowResult(r.row, "DUPLICATE", null, email, "Email already registered"));
+                continue;
+            }
+            if (existingUserNames.contains(userNameKey) || seenUserNames.contains(userNameKey)) {
+                results.add(new ImportRowResult(r.row, "DUPLICATE", null, email, "Username already registered"));
+                continue;
+            }
+            seenEmails.add(emailKey);
+            seenUserNames.add(userNameKey);
+            r.id = UuidV7.next();
+            r.customerId = customerIdGenerator.next();
+            fresh.add(r);
+        }
+
+        if (fresh.isEmpty()) return fresh;
+
+        try {
+            tx.executeWithoutResult(status -> insertBatch(fresh));
+            return fresh;
+        } catch (DataIntegrityViolationException e) {
+            // Someone registered one of these emails meanwhile: fall back to row by row
+            List<PendingRow> inserted = new ArrayList<>(fresh.size());
+            for (PendingRow r : fresh) {
+                try {
+                    tx.executeWithoutResult(status -> insertBatch(List.of(r)));
+                    inserted.add(r);
+                } catch (DataIntegrityViolationException dup) {
+                    results.add(new ImportRowResult(r.row, "DUPLICATE", null, r.data.getEmail(), "Email already registered"));
+                }
+            }
+            return inserted;
+        }
+    }
+
+    private void insertBatch(List<PendingRow> rows) {
+        jdbcTemplate.batchUpdate(INSERT_CUSTOMER, rows, rows.size(), (ps, r) -> {
+            ps.setObject(1, r.id);
+            ps.setString(2, r.customerId);
+            ps.setString(3, r.data.getUserName());
+            ps.setString(4, r.data.getFirstName());
+            ps.setString(5, r.data.getLastName());
+            ps.setString(6, r.data.getEmail());
+            ps.setBoolean(7, r.data.getActive() == null || r.data.getActive());
+        });
+        jdbcTemplate.batchUpdate(INSERT_ROLE, rows, rows.size(), (ps, r) -> {
+            ps.setObject(1, UuidV7.next());
+            ps.setString(2, r.customerId);
+        });
+    }
+
+    private List<ImportRowResult> provisionChunk(List<PendingRow> rows) {
+        Map<String, String> created;
+        try {
+            List<UserRepresentation> users = new ArrayList<>(rows.size());
+            for (PendingRow r : rows) {
+                CustomerImportRow d = r.data;
+                UserRepresentation user = keycloakService.newUser(d.getUserName(), d.getEmail(), d.getPassword(),
+                        d.getActive() == null || d.getActive(), d.getFirstName(), d.getLastName());
+                user.singleAttribute(KeycloakService.CUSTOMER_ID_ATTRIBUTE, r.customerId);
+                users.add(user);
+            }
+            created = keycloakService.importUsers(users);
+        } catch (Exception e) {
+            // Partial import not available (permissions, older server), or it failed part way:
+            // one user at a time. Users the failed call did create show up as taken here and
+            // are picked up by the per-row check below.
+            created = new HashMap<>();
+            for (PendingRow r : rows) {
+                CustomerImportRow d = r.data;
+                try {
+                    String kcId = keycloakService.createKeycloakUser(r.customerId, d.getUserName(), d.getEmail(), d.getPassword(), "USER",
+                            d.getActive() == null || d.getActive(), d.getFirstName(), d.getLastName());
+                    if (kcId != null) created.put(d.getUserName().toLowerCase(), kcId);
+                } catch (KeycloakUnavailableException unavailable) {
+                    // Decided by the per-row check below
+                }
+            }
+        }
+
+        List<Object[]> linked = new ArrayList<>();
+        List<Object[]> orphaned = new ArrayList<>();
+        List<ImportRowResult> results = new ArrayList<>(rows.size());
+
+        for (PendingRow r : rows) {
+            String kcId = created.get(r.data.getUserName().toLowerCase());
+            boolean unknown = false;
+            if (kcId == null) {
+                try {
+                    kcId = createdFor(r);
+                } catch (Exception e) {
+                    unknown = true;
+                }
+            }
+
+            if (kcId != null) {
+                linked.add(new Object[]{kcId, r.customerId});
+                results.add(new ImportRowResult(r.row, "CREATED", r.customerId, r.data.getEmail(), null));
+            } else if (unknown) {
+                // Keycloak could not tell us; keep the row so the reconciler can link it later
+                results.add(new ImportRowResult(r.row, "UNVERIFIED", r.customerId, r.data.getEmail(),
+                        "Keycloak unreachable; customer kept without a Keycloak link"));
+            } else {
+                orphaned.add(new Object[]{r.customerId});
+                results.add(new ImportRowResult(r.row, "FAILED", null, r.data.getEmail(), "Keycloak user not created (username taken?)"));
+            }
+        }
+
+        // Link the users that exist; drop only the rows whose Keycloak user really was not created
+        tx.executeWithoutResult(status -> {
+            if (!linked.isEmpty()) jdbcTemplate.batchUpdate(SET_KEYCLOAK_ID, linked);
+            if (!orphaned.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_ROLE, orphaned);
+                jdbcTemplate.batchUpdate(DELETE_CUSTOMER, orphaned);
+            }
+            rows.forEach(r -> events.publishEvent(new CustomerChangedEvent(r.customerId)));
+        });
+        return results;
+    }
+
+    // The Keycloak user created for this row (tagged with its customer id) if there is one.
+    // A user with the same username that is not tagged belongs to someone else.
+    private String createdFor(PendingRow r) {
+        String kcId = keycloakService.findUserIdByUsername(r.data.getUserName());
+        return kcId != null && keycloakService.isCreatedFor(kcId, r.customerId) ? kcId : null;
+    }
+
+    private static String validate(CustomerImportRow row) {
+        if (row.getUserName() == null || row.getUserName().isBlank()) return "userName is required";
+        if (row.getEmail() == null || !row.getEmail().contains("@")) return "valid email is required";
+        if (row.getPassword() == null || row.getPassword().isBlank()) return "password is required";
+        return null;
+    }
+
+    private List<ImportRowResult> await(Future<List<ImportRowResult>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Import chunk failed", e.getCause());
+        }
+    }
+
+    private static void write(JsonGenerator gen, Map<String, Long> counts, List<ImportRowResult> results) throws IOException {
+        for (ImportRowResult r : results) {
+            counts.merge(r.getStatus().toLowerCase(), 1L, Long::sum);
+            gen.writeObject(r);
+            gen.writeRaw('\n');
+        }
+        gen.flush();
+    }
+
+    /* ---------------- CSV (one record per line, RFC 4180 quoting) ---------------- */
+
+    private static String nextNonBlank(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) return line;
+        }
+        throw new IllegalArgumentException("CSV upload has no header line");
+    }
+
+    private static CustomerImportRow fromCsv(String[] header, String[] values) {
+        CustomerImportRow row = new CustomerImportRow();
+        for (int i = 0; i < header.length && i < values.length; i++) {
+            String v = values[i].isEmpty() ? null : values[i];
+            switch (header[i].trim().toLowerCase().replace("_", "")) {
+                case "username" -> row.setUserName(v);
+                case "email" -> row.setEmail(v);
+                case "password" -> row.setPassword(v);
+                case "firstname" -> row.setFirstName(v);
+                case "lastname" -> row.setLastName(v);
+                case "active" -> row.setActive(v == null ? null : Boolean.parseBoolean(v));
+                default -> { }
+            }
+        }
+        return row;
+    }
+
+    static String[] parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+}
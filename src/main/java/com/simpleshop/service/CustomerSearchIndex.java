@@ -0,0 +1,524 @@
+package com.simpleshop.service;
+
+import com.simpleshop.dto.CustomerDTO;
+import com.simpleshop.dto.CustomerSearchHitDTO;
+import com.simpleshop.dto.CustomerSearchPageDTO;
+import com.simpleshop.event.CustomerChangedEvent;
+import com.simpleshop.repository.CustomerJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-process search over userName, email, firstName and lastName.
+// Terms of 3+ characters match anywhere in a field (trigram postings, then verified);
+// 1-2 character terms match the start of a word. All terms must match; hits are ranked
+// by where they matched (whole field > field prefix > word prefix > substring) and field.
+//
+// Built in the background at startup from a streaming scan, retried with backoff if it
+// fails. Afterwards CustomerChangedEvents only queue the customer id; a background drain
+// re-reads everything queued with one query, so a bulk change is one refresh, not one per
+// customer. Changed customers are tombstoned and re-added, and postings are compacted once
+// tombstones outnumber half the live entries. Results are capped at max-results
+// (page * size), so a deep page cannot make a search allocate without bound.
+@Component
+public class CustomerSearchIndex {
+
+    private static final int FIELDS = 4;
+    private static final int[] FIELD_WEIGHT = {10, 9, 8, 8}; // userName, email, firstName, lastName
+
+    private static final long TRIGRAM = 1L << 48;
+    private static final long PREFIX1 = 2L << 48;
+    private static final long PREFIX2 = 3L << 48;
+
+    private static final int REFRESH_BATCH = 500;
+    private static final long MAX_BUILD_BACKOFF_MILLIS = 300_000;
+
+    private final CustomerJdbcRepository customerJdbcRepo;
+    private final TransactionTemplate readOnlyTx;
+    private final int fetchSize;
+    private final int maxCandidates;
+    private final int maxResults;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock. Per docId: the DTO, and its normalized fields as one UTF-8 byte[]
+    // (separated by 0) so ranking a candidate touches one array instead of four Strings.
+    private CustomerDTO[] customers = new CustomerDTO[1024];
+    private byte[][] texts = new byte[1024][];
+    private int docCount;
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private final Map<String, Integer> docIdByCustomerId = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private int tombstones;
+
+    private volatile boolean ready;
+    private volatile long lastBuildMillis;
+    private final Set<String> pendingRefresh = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private ScheduledExecutorService worker;
+
+    public CustomerSearchIndex(CustomerJdbcRepository customerJdbcRepo,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${customer.search.build-fetch-size:2000}") int fetchSize,
+                               @Value("${customer.search.max-candidates:200000}") int maxCandidates,
+                               @Value("${customer.search.max-results:1000}") int maxResults) {
+        this.customerJdbcRepo = customerJdbcRepo;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.fetchSize = fetchSize;
+        this.maxCandidates = maxCandidates;
+        this.maxResults = maxResults;
+    }
+
+    @PostConstruct
+    public void start() {
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread t = new Thread(runnable, "customer-search-index");
+            t.setDaemon(true);
+            return t;
+        });
+        worker.execute(() -> build(1000));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker != null) worker.shutdownNow();
+    }
+
+    private void build(long retryDelayMillis) {
+        long started = System.nanoTime();
+        try {
+            readOnlyTx.executeWithoutResult(status -> customerJdbcRepo.streamAll(null, fetchSize, this::upsert));
+            ready = true;
+
+            // Changes queued during the scan may have raced with it reading an older version of the row
+            scheduleDrain();
+
+            lastBuildMillis = (System.nanoTime() - started) / 1_000_000;
+            System.out.println("Customer search index built: " + size() + " customers in " + lastBuildMillis + " ms");
+        } catch (Exception e) {
+            System.err.println("Customer search index build failed, retrying in " + retryDelayMillis + " ms: " + e.getMessage());
+            clear();
+            worker.schedule(() -> build(Math.min(MAX_BUILD_BACKOFF_MILLIS, retryDelayMillis * 2)),
+                    retryDelayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int maxResults() {
+        return maxResults;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        pendingRefresh.add(event.customerId());
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) worker.execute(this::drain);
+    }
+
+    // Everything queued since the last drain, re-read REFRESH_BATCH ids per query
+    private void drain() {
+        drainScheduled.set(false);
+        // Until the build is done the queue is kept; the build drains it when it finishes
+        if (!ready) return;
+        List<String> batch = new ArrayList<>(Math.min(pendingRefresh.size(), REFRESH_BATCH));
+        Iterator<String> it = pendingRefresh.iterator();
+        while (it.hasNext()) {
+            batch.add(it.next());
+            it.remove();
+            if (batch.size() == REFRESH_BATCH || !it.hasNext()) {
+                try {
+                    refresh(batch);
+                } catch (Exception e) {
+                    System.err.println("Customer search index refresh failed, retrying: " + e.getMessage());
+                    pendingRefresh.addAll(batch);
+                    worker.schedule(this::scheduleDrain, 1, TimeUnit.SECONDS);
+                    return;
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void refresh(List<String> customerIds) {
+        Set<String> missing = new HashSet<>(customerIds);
+        for (CustomerDTO current : customerJdbcRepo.findByCustomerIds(customerIds)) {
+            upsert(current);
+            missing.remove(current.getCustomerId());
+        }
+        for (String customerId : missing) remove(customerId);
+    }
+
+    private void clear() {
+        lock.writeLock().lock();
+        try {
+            customers = new CustomerDTO[1024];
+            texts = new byte[1024][];
+            docCount = 0;
+            postings.clear();
+            docIdByCustomerId.clear();
+            deleted.clear();
+            tombstones = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void upsert(CustomerDTO customer) {
+        String[] normalized = {
+                normalize(customer.getUserName()),
+                normalize(customer.getEmail()),
+                normalize(customer.getFirstName()),
+                normalize(customer.getLastName())
+        };
+
+        lock.writeLock().lock();
+        try {
+            Integer previous = docIdByCustomerId.get(customer.getCustomerId());
+            if (previous != null) tombstone(previous);
+
+            int docId = append(customer, normalized);
+            docIdByCustomerId.put(customer.getCustomerId(), docId);
+            addPostings(docId, normalized);
+
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String customerId) {
+        lock.writeLock().lock();
+        try {
+            Integer docId = docIdByCustomerId.remove(customerId);
+            if (docId != null) tombstone(docId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // IllegalArgumentException when the page ends past maxResults
+    public CustomerSearchPageDTO search(String query, int page, int size) {
+        if (page < 0 || size < 1 || ((long) page + 1) * size > maxResults) {
+            throw new IllegalArgumentException("Search results are limited to the first " + maxResults);
+        }
+        long started = System.nanoTime();
+        String[] terms = normalize(query).trim().split("\\s+");
+        byte[][] termBytes = new byte[terms.length][];
+        for (int t = 0; t < terms.length; t++) termBytes[t] = terms[t].getBytes(StandardCharsets.UTF_8);
+        int wanted = (page + 1) * size;
+
+        // Bounded min-heap of (score, docId) packed into longs: no allocation per candidate
+        long[] heap = new long[wanted];
+        int heapSize = 0;
+        int total = 0;
+        boolean truncated = false;
+        List<CustomerSearchHitDTO> ranked;
+
+        lock.readLock().lock();
+        try {
+            int[] candidates = candidates(terms);
+            if (candidates.length > maxCandidates) truncated = true;
+
+            int limit = Math.min(candidates.length, maxCandidates);
+            for (int c = 0; c < limit; c++) {
+                int docId = candidates[c];
+                if (deleted.get(docId)) continue;
+
+                int score = score(texts[docId], termBytes);
+                if (score == 0) continue;
+
+                total++;
+                // Higher score first, then older customers first
+                long entry = ((long) score << 32) | (Integer.MAX_VALUE - docId);
+                if (heapSize < wanted) {
+                    heap[heapSize] = entry;
+                    siftUp(heap, heapSize++);
+                } else if (entry > heap[0]) {
+                    heap[0] = entry;
+                    siftDown(heap, heapSize);
+                }
+            }
+
+            long[] sorted = Arrays.copyOf(heap, heapSize);
+            Arrays.sort(sorted);
+            ranked = new ArrayList<>(Math.max(0, heapSize - page * size));
+            for (int i = heapSize - 1 - page * size; i >= 0; i--) {
+                int docId = Integer.MAX_VALUE - (int) sorted[i];
+                ranked.add(hit(customers[docId], (int) (sorted[i] >>> 32)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return new CustomerSearchPageDTO(ranked, total, truncated, page, size,
+                (System.nanoTime() - started) / 1_000);
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= heap[i]) return;
+            long tmp = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = tmp;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && heap[left] < heap[smallest]) smallest = left;
+            if (right < size && heap[right] < heap[smallest]) smallest = right;
+            if (smallest == i) return;
+            long tmp = heap[smallest];
+            heap[smallest] = heap[i];
+            heap[i] = tmp;
+            i = smallest;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("ready", ready);
+            stats.put("customers", docIdByCustomerId.size());
+            stats.put("tombstones", tombstones);
+            stats.put("postingKeys", postings.size());
+            stats.put("lastBuildMillis", lastBuildMillis);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return docIdByCustomerId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* ---------------- postings ---------------- */
+
+    private void addPostings(int docId, String[] normalized) {
+        Set<Long> keys = new HashSet<>();
+        for (String field : normalized) {
+            for (int i = 0; i + 3 <= field.length(); i++) {
+                keys.add(TRIGRAM | pack(field.charAt(i), field.charAt(i + 1), field.charAt(i + 2)));
+            }
+            for (int i = 0; i < field.length(); i++) {
+                if (!isWordStart(field, i)) continue;
+                keys.add(PREFIX1 | pack(field.charAt(i), '\0', '\0'));
+                if (i + 1 < field.length()) keys.add(PREFIX2 | pack(field.charAt(i), field.charAt(i + 1), '\0'));
+            }
+        }
+        // docIds only grow, so every posting list stays sorted
+        for (Long key : keys) postings.computeIfAbsent(key, k -> new IntList()).add(docId);
+    }
+
+    private void tombstone(int docId) {
+        if (!deleted.get(docId)) {
+            deleted.set(docId);
+            tombstones++;
+        }
+    }
+
+    // Rewrites docs and postings without the tombstoned entries (under the write lock)
+    private void compactIfNeeded() {
+        if (tombstones < 10_000 || tombstones * 2 < docIdByCustomerId.size()) return;
+
+        CustomerDTO[] oldCustomers = customers;
+        byte[][] oldTexts = texts;
+        int oldCount = docCount;
+        BitSet oldDeleted = (BitSet) deleted.clone();
+
+        customers = new CustomerDTO[Math.max(1024, docIdByCustomerId.size() * 2)];
+        texts = new byte[customers.length][];
+        docCount = 0;
+        postings.clear();
+        docIdByCustomerId.clear();
+        deleted.clear();
+        tombstones = 0;
+
+        for (int i = 0; i < oldCount; i++) {
+            if (oldDeleted.get(i)) continue;
+            String[] normalized = new String(oldTexts[i], StandardCharsets.UTF_8).split("\0", -1);
+            int docId = append(oldCustomers[i], normalized);
+            docIdByCustomerId.put(oldCustomers[i].getCustomerId(), docId);
+            addPostings(docId, normalized);
+        }
+    }
+
+    private int append(CustomerDTO customer, String[] normalized) {
+        if (docCount == customers.length) {
+            customers = Arrays.copyOf(customers, docCount * 2);
+            texts = Arrays.copyOf(texts, docCount * 2);
+        }
+        customers[docCount] = customer;
+        texts[docCount] = String.join("\0", normalized).getBytes(StandardCharsets.UTF_8);
+        return docCount++;
+    }
+
+    // Intersection of the posting lists of every term; shortest list drives the merge
+    private int[] candidates(String[] terms) {
+        List<IntList> lists = new ArrayList<>();
+        for (String term : terms) {
+            if (term.isEmpty()) continue;
+            if (term.length() >= 3) {
+                for (int i = 0; i + 3 <= term.length(); i++) {
+                    IntList list = postings.get(TRIGRAM | pack(term.charAt(i), term.charAt(i + 1), term.charAt(i + 2)));
+                    if (list == null) return new int[0];
+                    lists.add(list);
+                }
+            } else {
+                long key = term.length() == 1
+                        ? PREFIX1 | pack(term.charAt(0), '\0', '\0')
+                        : PREFIX2 | pack(term.charAt(0), term.charAt(1), '\0');
+                IntList list = postings.get(key);
+                if (list == null) return new int[0];
+                lists.add(list);
+            }
+        }
+        if (lists.isEmpty()) return new int[0];
+
+        lists.sort(Comparator.comparingInt(l -> l.size));
+        IntList shortest = lists.get(0);
+        int[] cursors = new int[lists.size()];
+        int[] out = new int[shortest.size];
+        int n = 0;
+        outer:
+        for (int i = 0; i < shortest.size; i++) {
+            int docId = shortest.values[i];
+            for (int l = 1; l < lists.size(); l++) {
+                // All lists are sorted and docId only grows: gallop forward from the last position
+                IntList other = lists.get(l);
+                int pos = gallop(other, cursors[l], docId);
+                cursors[l] = pos;
+                if (pos == other.size) break outer;
+                if (other.values[pos] != docId) continue outer;
+            }
+            out[n++] = docId;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // First index >= from whose value is >= target (or list.size)
+    private static int gallop(IntList list, int from, int target) {
+        int step = 1;
+        int hi = from;
+        while (hi < list.size && list.values[hi] < target) {
+            from = hi + 1;
+            hi += step;
+            step <<= 1;
+        }
+        int pos = Arrays.binarySearch(list.values, from, Math.min(hi + 1, list.size), target);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    /* ---------------- ranking ---------------- */
+
+    // Sum over terms of the best field match; 0 if any term does not match at all
+    private static int score(byte[] text, byte[][] terms) {
+        int total = 0;
+        for (byte[] term : terms) {
+            if (term.length == 0) continue;
+            int best = 0;
+            int start = 0;
+            for (int f = 0; f < FIELDS && start <= text.length; f++) {
+                int end = start;
+                while (end < text.length && text[end] != 0) end++;
+                int s = matchScore(text, start, end, term) * FIELD_WEIGHT[f];
+                if (s > best) best = s;
+                start = end + 1;
+            }
+            if (best == 0) return 0;
+            total += best;
+        }
+        return total;
+    }
+
+    private static int matchScore(byte[] text, int start, int end, byte[] term) {
+        int length = end - start;
+        if (length < term.length) return 0;
+        if (regionMatches(text, start, term)) {
+            return length == term.length ? 100 : 60;
+        }
+
+        int substring = 0;
+        for (int at = start + 1; at + term.length <= end; at++) {
+            if (text[at] != term[0] || !regionMatches(text, at, term)) continue;
+            if (!isWordByte(text[at - 1])) return 40;
+            substring = 20;
+        }
+        // Short terms are only meant to match word starts
+        return term.length >= 3 ? substring : 0;
+    }
+
+    private static boolean regionMatches(byte[] text, int at, byte[] term) {
+        for (int i = 0; i < term.length; i++) {
+            if (text[at + i] != term[i]) return false;
+        }
+        return true;
+    }
+
+    // ASCII letters/digits, and any byte of a multi-byte UTF-8 character
+    private static boolean isWordByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || b < 0;
+    }
+
+    private static boolean isWordStart(String s, int i) {
+        return Character.isLetterOrDigit(s.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(s.charAt(i - 1)));
+    }
+
+    private static long pack(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+
+    private static CustomerSearchHitDTO hit(CustomerDTO c, int score) {
+        return new CustomerSearchHitDTO(c.getCustomerId(), c.getUserName(), c.getEmail(),
+                c.getFirstName(), c.getLastName(), c.isActive(), score);
+    }
+
+    // Growable int[] without boxing
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+}
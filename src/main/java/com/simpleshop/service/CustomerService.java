@@ -1,54 +1,145 @@
 package com.simpleshop.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.simpleshop.dto.CustomerDTO;
+import com.simpleshop.dto.CustomerPageDTO;
+import com.simpleshop.dto.CustomerPatchRequest;
+import com.simpleshop.dto.ProvisioningStatusDTO;
+import com.simpleshop.dto.RegistrationAcceptedDTO;
+import com.simpleshop.event.CustomerChangedEvent;
+import com.simpleshop.exception.KeycloakUnavailableException;
+import com.simpleshop.exception.PreconditionFailedException;
 import com.simpleshop.mapper.CustomerMapper;
 import com.simpleshop.model.Customer;
+import com.simpleshop.model.Permission;
+import com.simpleshop.repository.CustomerJdbcRepository;
 import com.simpleshop.repository.CustomerRepository;
 import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
 public class CustomerService implements CustomerServiceInterface {
 
+    private static final int MAX_ID_ATTEMPTS = 3;
+
     private final CustomerRepository customerRepo;
     private final EntityManager entityManager;
     private final RoleService roleService;
     private final KeycloakService keycloakService;
-
-    public CustomerService(CustomerRepository customerRepo, EntityManager entityManager, RoleService roleService, KeycloakService keycloakService) {
+    private final RevocationService revocationService;
+    private final ProvisioningOutbox provisioningOutbox;
+    private final CustomerIdGenerator customerIdGenerator;
+    private final CustomerJdbcRepository customerJdbcRepo;
+    private final CustomerCache customerCache;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate writeTx;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectMapper objectMapper;
+
+    @Value("${customer.listing.max-page-size:1000}")
+    private int maxPageSize;
+
+    @Value("${customer.listing.stream-fetch-size:500}")
+    private int streamFetchSize;
+
+    public CustomerService(CustomerRepository customerRepo, EntityManager entityManager, RoleService roleService, KeycloakService keycloakService,
+                           RevocationService revocationService, ProvisioningOutbox provisioningOutbox, CustomerIdGenerator customerIdGenerator,
+                           CustomerJdbcRepository customerJdbcRepo, CustomerCache customerCache, ApplicationEventPublisher events,
+                           PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
         this.customerRepo = customerRepo;
         this.entityManager = entityManager;
         this.roleService = roleService;
         this.keycloakService = keycloakService;
+        this.revocationService = revocationService;
+        this.provisioningOutbox = provisioningOutbox;
+        this.customerIdGenerator = customerIdGenerator;
+        this.customerJdbcRepo = customerJdbcRepo;
+        this.customerCache = customerCache;
+        this.events = events;
+        this.writeTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.objectMapper = objectMapper;
     }
 
     @Override
-    public List<CustomerDTO> getAllCustomers() {
-        return customerRepo.findAll().stream().map(CustomerMapper::toDTO).collect(Collectors.toList());
+    public CustomerPageDTO getCustomersPage(String cursor, int limit, Boolean active) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        String afterId = decodeCursor(cursor);
+
+        // Fetch one extra row to know whether another page exists
+        List<CustomerDTO> rows = customerJdbcRepo.findPage(afterId, active, pageSize + 1);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = encodeCursor(rows.get(pageSize - 1).getId());
+        }
+
+        return new CustomerPageDTO(rows, nextCursor, pageSize);
     }
 
     @Override
-    @Transactional
-    public Optional<CustomerDTO> createCustomer(Customer customer) {
-        try {
-
-            String uuid = UUID.randomUUID().toString().replace("-", "");
-            String lastDigits = uuid.substring(uuid.length() - 7).toUpperCase();
+    public void streamCustomers(Boolean active, OutputStream out) {
+        // One NDJSON line per row, written while the cursor is still open.
+        // Jackson's buffer decides when bytes hit the socket, not each row.
+        ObjectWriter writer = objectMapper.writerFor(CustomerDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        readOnlyTx.executeWithoutResult(status -> {
+            try (JsonGenerator gen = objectMapper.createGenerator(out)) {
+                gen.setRootValueSeparator(null);
+
+                customerJdbcRepo.streamAll(active, streamFetchSize, dto -> {
+                    try {
+                        writer.writeValue(gen, dto);
+                        gen.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
 
-            String prefix = "CUS_" + LocalDate.now().format(DateTimeFormatter.ofPattern("ddMMyy"));
-            String generatedCustomerId = prefix + "_" + lastDigits;
+    private static String encodeCursor(String lastId) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+    }
 
-            System.out.println("generatedCustomerId................"+ generatedCustomerId);
+    private static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
 
-            customer.setCustomerId(generatedCustomerId);
+    @Override
+    public Optional<CustomerDTO> createCustomer(Customer customer) {
+        try {
 
             String kcId = keycloakService.createKeycloakUser(
                     customer.getUserName(),
@@ -66,15 +157,14 @@ public class CustomerService implements CustomerServiceInterface {
                 return Optional.empty();
             }
 
-            System.out.println("kcId................"+ kcId);
             customer.setKeycloakId(kcId);
 
-            System.out.println("customer................"+ customer);
-            Customer saved = customerRepo.save(customer);
+            Customer saved = insertWithFreshId(customer, inserted -> { });
             System.out.println("saved................"+ saved);
-            roleService.assignDefaultRole(saved);
             return Optional.of(CustomerMapper.toDTO(saved));
 
+        } catch (KeycloakUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return Optional.empty();
@@ -82,34 +172,120 @@ public class CustomerService implements CustomerServiceInterface {
     }
 
 
+    // Async registration: customer, role and outbox row in one short transaction.
+    // ProvisioningWorker creates the Keycloak user afterwards and fills in keycloakId.
+    @Override
+    public Optional<RegistrationAcceptedDTO> createCustomerAsync(Customer customer) {
+        try {
+            customer.setKeycloakId(null);
+
+            String[] statusToken = new String[1];
+            Customer saved = insertWithFreshId(customer,
+                    inserted -> statusToken[0] = provisioningOutbox.enqueue(inserted.getCustomerId()));
+            return Optional.of(new RegistrationAcceptedDTO(CustomerMapper.toDTO(saved), statusToken[0]));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Optional.empty();
+        }
+    }
+
+    // Customer and default role in one transaction, plus whatever else must commit with them.
+    // Ids are unique per node by construction, so the unique key on customer_id is the only
+    // check: a collision (misconfigured node ids) rolls back and is retried with a new id.
+    private Customer insertWithFreshId(Customer customer, Consumer<Customer> alsoInTransaction) {
+        for (int attempt = 1; ; attempt++) {
+            // A rolled-back attempt leaves the generated id behind; the retry must insert again
+            customer.setId(null);
+            customer.setVersion(0);
+            customer.setCustomerId(customerIdGenerator.next());
+            try {
+                return writeTx.execute(status -> {
+                    Customer saved = customerRepo.saveAndFlush(customer);
+                    roleService.assignDefaultRole(saved);
+                    alsoInTransaction.accept(saved);
+                    events.publishEvent(new CustomerChangedEvent(saved.getCustomerId()));
+                    return saved;
+                });
+            } catch (DataIntegrityViolationException e) {
+                if (!isCustomerIdCollision(e) || attempt == MAX_ID_ATTEMPTS) throw e;
+                System.err.println("Customer id collision on " + customer.getCustomerId() + " (attempt " + attempt + ")");
+            }
+        }
+    }
+
+    private static boolean isCustomerIdCollision(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.contains("(customer_id)");
+    }
+
+    @Override
+    public Optional<ProvisioningStatusDTO> getProvisioningStatus(String statusToken) {
+        return provisioningOutbox.findByStatusToken(statusToken)
+                .map(task -> new ProvisioningStatusDTO(
+                        task.getCustomerId(),
+                        task.getStatus().name(),
+                        task.getAttempts(),
+                        task.getUpdatedAt()
+                ));
+    }
+
+    // PUT: all four fields are replaced (null clears)
     @Override
     @Transactional
-    public Optional<CustomerDTO> updateCustomer(String customerId, Customer updated) {
+    public Optional<CustomerDTO> updateCustomer(String customerId, Customer updated, Long expectedVersion) {
+        return applyUpdate(customerId, expectedVersion, true,
+                updated.getUserName(), updated.getEmail(), updated.getFirstName(), updated.getLastName());
+    }
+
+    // PATCH: only the fields present in the request
+    @Override
+    @Transactional
+    public Optional<CustomerDTO> patchCustomer(String customerId, CustomerPatchRequest patch, Long expectedVersion) {
+        return applyUpdate(customerId, expectedVersion, false,
+                patch.getUserName(), patch.getEmail(), patch.getFirstName(), patch.getLastName());
+    }
+
+    // Field-level diff against the stored row. Unchanged fields are neither written
+    // (@DynamicUpdate) nor sent to Keycloak; a no-op request touches neither.
+    private Optional<CustomerDTO> applyUpdate(String customerId, Long expectedVersion, boolean replace,
+                                              String userName, String email, String firstName, String lastName) {
         try {
             return customerRepo.findByCustomerId(customerId).map(existing -> {
 
-                // Update DB fields
-                existing.setUserName(updated.getUserName());
-                existing.setEmail(updated.getEmail());
-                existing.setFirstName(updated.getFirstName());
-                existing.setLastName(updated.getLastName());
+                if (expectedVersion != null && expectedVersion != existing.getVersion()) {
+                    throw new PreconditionFailedException(existing.getVersion());
+                }
 
-                Customer saved = customerRepo.save(existing);
+                String newUserName = changed(existing.getUserName(), userName, replace);
+                String newEmail = changed(existing.getEmail(), email, replace);
+                String newFirstName = changed(existing.getFirstName(), firstName, replace);
+                String newLastName = changed(existing.getLastName(), lastName, replace);
 
-                // Update Keycloak safely
-                keycloakService.updateKeycloakUser(
-                        saved.getKeycloakId(),
-                        saved.getUserName(),
-                        saved.getEmail(),
-                        saved.getFirstName(),
-                        saved.getLastName()
-                );
+                if (newUserName == null && newEmail == null && newFirstName == null && newLastName == null) {
+                    return CustomerMapper.toDTO(existing);
+                }
 
-                // Return DTO wrapped in Optional ONCE
-                return CustomerMapper.toDTO(saved);
+                if (newUserName != null) existing.setUserName(userName);
+                if (newEmail != null) existing.setEmail(email);
+                if (newFirstName != null) existing.setFirstName(firstName);
+                if (newLastName != null) existing.setLastName(lastName);
+
+                // Flushed now so the returned version (and ETag) is the one being committed
+                Customer saved = customerRepo.saveAndFlush(existing);
+                events.publishEvent(new CustomerChangedEvent(customerId));
+
+                // Only the delta goes to Keycloak. Not provisioned yet: the worker creates
+                // the user from the row as it is then.
+                if (saved.getKeycloakId() != null) {
+                    keycloakService.updateKeycloakUser(saved.getKeycloakId(), newUserName, newEmail, newFirstName, newLastName);
+                }
 
+                return CustomerMapper.toDTO(saved);
             });
 
+        } catch (PreconditionFailedException | OptimisticLockingFailureException | KeycloakUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("Error updating customer: " + e.getMessage());
             e.printStackTrace();
@@ -117,6 +293,14 @@ public class CustomerService implements CustomerServiceInterface {
         }
     }
 
+    // The value to send when it differs from the current one, else null. Clearing a field
+    // (PUT with null) changes the row but has nothing to send: "" clears it in Keycloak.
+    private static String changed(String current, String requested, boolean replace) {
+        if (requested == null && !replace) return null;
+        if (Objects.equals(current, requested)) return null;
+        return requested == null ? "" : requested;
+    }
+
     @Override
     @Transactional
     public boolean deleteCustomer(String customerId) {
@@ -133,6 +317,7 @@ public class CustomerService implements CustomerServiceInterface {
         }
 
         customerRepo.delete(customer);
+        events.publishEvent(new CustomerChangedEvent(customerId));
 
         return true;
     }
@@ -140,32 +325,41 @@ public class CustomerService implements CustomerServiceInterface {
     @Override
     public CustomerDTO getCustomerSecure(String customerId, String requesterKcId) {
 
-        Customer customer = customerRepo.findByCustomerId(customerId).orElse(null);
+        CustomerDTO customer = customerCache.getByCustomerId(customerId);
 
         if (customer == null) return null;
 
-        boolean isOwner = requesterKcId.equals(customer.getKeycloakId());
-        boolean isAdmin = roleService.isAdmin(requesterKcId);
+        // Owner check is a field comparison; the role lookup only runs for non-owners
+        boolean allowed = requesterKcId.equals(customer.getKeycloakId())
+                || roleService.hasPermissionByKeycloakId(requesterKcId, Permission.CUSTOMER_READ_ANY);
 
-        if (!isOwner && !isAdmin) return new CustomerDTO();
+        if (!allowed) return new CustomerDTO();
 
-        return CustomerMapper.toDTO(customer);
+        return customer;
     }
 
     @Override
     public CustomerDTO getCustomerByKeycloakId(String keycloakId) {
-        return customerRepo.findByKeycloakId(keycloakId)
-                .map(customer -> new CustomerDTO(
-                        customer.getId(),
-                        customer.getCustomerId(),
-                        customer.getKeycloakId(),
-                        customer.getUserName(),
-                        customer.getFirstName(),
-                        customer.getLastName(),
-                        customer.getEmail(),
-                        customer.isActive()
-                ))
-                .orElse(null);
+        return customerCache.getByKeycloakId(keycloakId);
+    }
+
+    // Version-only query (no row mapping): the cache is only invalidated on the node that
+    // made the write, so a 304 decided from it could confirm another node's stale copy.
+    // A cached copy older than the row is dropped so the 200 that follows is fresh.
+    @Override
+    public Optional<Long> getCustomerVersion(String customerId) {
+        Optional<Long> version = customerRepo.findVersionByCustomerId(customerId);
+        CustomerDTO cached = customerCache.peek(customerId);
+        if (cached != null && !version.equals(Optional.of(cached.getVersion()))) customerCache.invalidate(customerId);
+        return version;
+    }
+
+    @Override
+    public Optional<Long> getCustomerVersionByKeycloakId(String keycloakId) {
+        Optional<Long> version = customerRepo.findVersionByKeycloakId(keycloakId);
+        CustomerDTO cached = customerCache.peekByKeycloakId(keycloakId);
+        if (cached != null && !version.equals(Optional.of(cached.getVersion()))) customerCache.invalidate(cached.getCustomerId());
+        return version;
     }
 
     @Override
@@ -180,9 +374,13 @@ public class CustomerService implements CustomerServiceInterface {
         // Block in Keycloak
         keycloakService.disableUser(customer.getKeycloakId());
 
+        // Tokens already issued stay valid until exp - deny them locally
+        revocationService.blockSubject(customer.getKeycloakId());
+
         // Update DB
         customer.setActive(false);
         customerRepo.save(customer);
+        events.publishEvent(new CustomerChangedEvent(customerId));
 
         return true;
     }
@@ -198,18 +396,22 @@ public class CustomerService implements CustomerServiceInterface {
 
         // Unblock in Keycloak
         keycloakService.enableUser(customer.getKeycloakId());
+        revocationService.unblockSubject(customer.getKeycloakId());
 
         // Update DB
         customer.setActive(true);
         customerRepo.save(customer);
+        events.publishEvent(new CustomerChangedEvent(customerId));
 
         return true;
     }
 
+    // Runs right before a write that will evict the entry anyway, so a cache miss
+    // is answered with an existence query instead of loading and caching the customer
     public boolean isOwner(String customerId, String requesterKcId) {
-        return customerRepo.findByCustomerId(customerId)
-                .map(c -> c.getKeycloakId().equals(requesterKcId))
-                .orElse(false);
+        CustomerDTO cached = customerCache.peek(customerId);
+        if (cached != null) return requesterKcId.equals(cached.getKeycloakId());
+        return customerRepo.existsByCustomerIdAndKeycloakId(customerId, requesterKcId);
     }
 
 }
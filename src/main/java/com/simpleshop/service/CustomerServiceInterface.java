@@ -1,18 +1,31 @@
 package com.simpleshop.service;
 
 import com.simpleshop.dto.CustomerDTO;
+import com.simpleshop.dto.CustomerPageDTO;
+import com.simpleshop.dto.CustomerPatchRequest;
+import com.simpleshop.dto.ProvisioningStatusDTO;
+import com.simpleshop.dto.RegistrationAcceptedDTO;
 import com.simpleshop.model.Customer;
 
-import java.util.List;
+import java.io.OutputStream;
 import java.util.Optional;
 
 public interface CustomerServiceInterface {
 
-    List<CustomerDTO> getAllCustomers();
+    CustomerPageDTO getCustomersPage(String cursor, int limit, Boolean active);
+
+    void streamCustomers(Boolean active, OutputStream out);
 
     Optional<CustomerDTO> createCustomer(Customer customer);
 
-    Optional<CustomerDTO> updateCustomer(String customerId, Customer updated);
+    Optional<RegistrationAcceptedDTO> createCustomerAsync(Customer customer);
+
+    Optional<ProvisioningStatusDTO> getProvisioningStatus(String statusToken);
+
+    // expectedVersion from If-Match; null skips the check
+    Optional<CustomerDTO> updateCustomer(String customerId, Customer updated, Long expectedVersion);
+
+    Optional<CustomerDTO> patchCustomer(String customerId, CustomerPatchRequest patch, Long expectedVersion);
 
     boolean deleteCustomer(String customerId);
 
@@ -26,5 +39,9 @@ public interface CustomerServiceInterface {
 
     CustomerDTO getCustomerByKeycloakId(String keycloakId);
 
+    Optional<Long> getCustomerVersion(String customerId);
+
+    Optional<Long> getCustomerVersionByKeycloakId(String keycloakId);
+
 
 }
@@ -0,0 +1,186 @@
+package com.simpleshop.service;
+
+import com.simpleshop.event.KeycloakCircuitStateChangedEvent;
+import com.simpleshop.exception.KeycloakUnavailableException;
+import com.simpleshop.util.CircuitBreaker;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.WebApplicationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Isolation for KeycloakService admin calls. Each operation has its own bulkhead
+// (a cap on concurrent calls), so a burst of one kind cannot take every admin
+// connection; all of them share one circuit breaker, because they all fail together
+// when Keycloak is down. Only outages count as failures: no response, timeouts and
+// 5xx. A 404 or 409 is Keycloak answering.
+// BULK is the lane for CustomerBulkService; it is sized to that service's fan-out
+// (customer.bulk.keycloak-concurrency), so a bulk run neither trips its own bulkhead
+// nor takes the permits single-customer calls need.
+@Component
+public class KeycloakAdminGuard {
+
+    public enum Operation {
+        CREATE_USER,
+        IMPORT_USERS,
+        UPDATE_USER,
+        DISABLE_USER,
+        ENABLE_USER,
+        DELETE_USER,
+        READ,
+        BULK
+    }
+
+    private static final int RECENT_TRANSITIONS = 20;
+
+    private final CircuitBreaker breaker;
+    private final long maxWaitMillis;
+    private final ApplicationEventPublisher events;
+    private final Map<Operation, Semaphore> bulkheads = new EnumMap<>(Operation.class);
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final Deque<KeycloakCircuitStateChangedEvent> recentTransitions = new ArrayDeque<>();
+
+    public KeycloakAdminGuard(ApplicationEventPublisher events,
+                              @Value("${keycloak.admin.bulkhead.max-concurrent:4}") int maxConcurrent,
+                              @Value("${keycloak.admin.bulkhead.max-wait-ms:100}") long maxWaitMillis,
+                              @Value("${customer.bulk.keycloak-concurrency:8}") int bulkConcurrency,
+                              @Value("${keycloak.admin.circuit.window-size:20}") int windowSize,
+                              @Value("${keycloak.admin.circuit.minimum-calls:10}") int minimumCalls,
+                              @Value("${keycloak.admin.circuit.failure-rate-threshold:0.5}") double failureRateThreshold,
+                              @Value("${keycloak.admin.circuit.open-seconds:30}") long openSeconds,
+                              @Value("${keycloak.admin.circuit.probe-calls:3}") int probeCalls) {
+        this.events = events;
+        this.maxWaitMillis = maxWaitMillis;
+        this.breaker = new CircuitBreaker("keycloak-admin", windowSize, minimumCalls, failureRateThreshold,
+                openSeconds * 1000, probeCalls, this::onTransition);
+
+        for (Operation op : Operation.values()) {
+            int permits = op == Operation.BULK ? bulkConcurrency : maxConcurrent;
+            bulkheads.put(op, new Semaphore(Math.max(1, permits)));
+            stats.put(op, new OperationStats());
+        }
+    }
+
+    public <T> T call(Operation op, Supplier<T> action) {
+        OperationStats s = stats.get(op);
+        Semaphore bulkhead = bulkheads.get(op);
+
+        if (!acquire(bulkhead)) {
+            s.rejectedByBulkhead.increment();
+            throw new KeycloakUnavailableException("Keycloak " + op + " bulkhead is full");
+        }
+        try {
+            long permit = breaker.tryAcquire();
+            if (permit < 0) {
+                s.rejectedByCircuit.increment();
+                throw new KeycloakUnavailableException("Keycloak circuit is open, " + op + " not attempted");
+            }
+
+            s.calls.increment();
+            boolean recorded = false;
+            try {
+                T result = action.get();
+                breaker.onResult(permit, true);
+                recorded = true;
+                return result;
+            } catch (RuntimeException e) {
+                boolean outage = isOutage(e);
+                if (outage) s.failures.increment();
+                breaker.onResult(permit, !outage);
+                recorded = true;
+                throw e;
+            } finally {
+                if (!recorded) breaker.release(permit);
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    public void run(Operation op, Runnable action) {
+        call(op, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private boolean acquire(Semaphore bulkhead) {
+        try {
+            return bulkhead.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Transport errors (connect/read/pool timeouts) and server errors, anywhere in the cause chain
+    private static boolean isOutage(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ProcessingException) return true;
+            if (t instanceof WebApplicationException w && w.getResponse() != null && w.getResponse().getStatus() >= 500) return true;
+        }
+        return false;
+    }
+
+    private void onTransition(CircuitBreaker.Transition t) {
+        KeycloakCircuitStateChangedEvent event =
+                new KeycloakCircuitStateChangedEvent(t.name(), t.from(), t.to(), t.failureRate(), Instant.now());
+
+        System.out.println("Keycloak admin circuit " + t.from() + " -> " + t.to()
+                + " (failure rate " + Math.round(t.failureRate() * 100) + "%)");
+        synchronized (recentTransitions) {
+            if (recentTransitions.size() == RECENT_TRANSITIONS) recentTransitions.removeFirst();
+            recentTransitions.addLast(event);
+        }
+        events.publishEvent(event);
+    }
+
+    public CircuitBreaker.State state() {
+        return breaker.state();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> operations = new LinkedHashMap<>();
+        stats.forEach((op, s) -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("calls", s.calls.sum());
+            m.put("failures", s.failures.sum());
+            m.put("rejectedByCircuit", s.rejectedByCircuit.sum());
+            m.put("rejectedByBulkhead", s.rejectedByBulkhead.sum());
+            m.put("available", bulkheads.get(op).availablePermits());
+            operations.put(op.name().toLowerCase(), m);
+        });
+
+        List<KeycloakCircuitStateChangedEvent> transitions;
+        synchronized (recentTransitions) {
+            transitions = new ArrayList<>(recentTransitions);
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("state", breaker.state());
+        out.put("failureRate", breaker.failureRate());
+        out.put("operations", operations);
+        out.put("recentTransitions", transitions);
+        return out;
+    }
+
+    private static final class OperationStats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder rejectedByCircuit = new LongAdder();
+        final LongAdder rejectedByBulkhead = new LongAdder();
+    }
+}
@@ -1,23 +1,93 @@
 package com.simpleshop.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.JWTParser;
+import com.simpleshop.config.KeycloakEndpoint;
+import com.simpleshop.config.KeycloakHttpMetrics;
+import com.simpleshop.config.KeycloakHttpProperties;
 import com.simpleshop.config.KeycloakProperties;
-import org.springframework.http.*;
+import com.simpleshop.dto.IntrospectionResponse;
+import com.simpleshop.dto.TokenResponse;
+import com.simpleshop.exception.KeycloakAuthException;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.message.BasicNameValuePair;
+import org.apache.hc.core5.net.WWWFormCodec;
+import org.apache.hc.core5.util.Timeout;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Keycloak OIDC calls on the non-blocking client: nothing here waits on a socket.
+// Futures complete on the client's I/O threads, so continuations must stay cheap
+// (parsing, in-memory bookkeeping) and never block.
+// Failures complete the future with KeycloakAuthException instead of returning null.
 @Service
 public class KeycloakAuthService {
 
-    private final KeycloakProperties props;
-    private final RestTemplate restTemplate;
+    private static final TypeReference<Map<String, Object>> CLAIMS = new TypeReference<>() {
+    };
 
-    public KeycloakAuthService(KeycloakProperties props, RestTemplate restTemplate) {
+    private final KeycloakProperties props;
+    private final CloseableHttpAsyncClient httpClient;
+    private final KeycloakHttpMetrics metrics;
+    private final ObjectMapper objectMapper;
+    private final RevocationService revocationService;
+    private final Map<KeycloakEndpoint, RequestConfig> requestConfigs = new EnumMap<>(KeycloakEndpoint.class);
+    private final Map<KeycloakEndpoint, Long> totalTimeouts = new EnumMap<>(KeycloakEndpoint.class);
+    private final ScheduledThreadPoolExecutor deadlines;
+
+    public KeycloakAuthService(KeycloakProperties props,
+                               KeycloakHttpProperties httpProps,
+                               CloseableHttpAsyncClient keycloakAsyncClient,
+                               KeycloakHttpMetrics metrics,
+                               ObjectMapper objectMapper,
+                               RevocationService revocationService) {
         this.props = props;
-        this.restTemplate = restTemplate;
+        this.httpClient = keycloakAsyncClient;
+        this.metrics = metrics;
+        this.objectMapper = objectMapper;
+        this.revocationService = revocationService;
+
+        // Connect timeout lives on the client's ConnectionConfig (RestConfig)
+        for (KeycloakEndpoint endpoint : KeycloakEndpoint.values()) {
+            requestConfigs.put(endpoint, RequestConfig.custom()
+                    .setConnectionRequestTimeout(Timeout.ofMilliseconds(httpProps.getPoolAcquireTimeout()))
+                    .setResponseTimeout(Timeout.ofMilliseconds(httpProps.readTimeoutFor(endpoint)))
+                    .build());
+            totalTimeouts.put(endpoint, (long) httpProps.totalTimeoutFor(endpoint));
+        }
+        // Almost every call finishes well before its deadline; cancelled timers leave the queue at once
+        this.deadlines = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread t = new Thread(runnable, "keycloak-auth-deadline");
+            t.setDaemon(true);
+            return t;
+        });
+        this.deadlines.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deadlines.shutdownNow();
     }
 
     private String tokenUrl() {
@@ -36,85 +106,131 @@ public class KeycloakAuthService {
         return props.getServerUrl() + "/realms/" + props.getRealm() + "/protocol/openid-connect/logout";
     }
 
-    public Map<String, Object> loginWithPassword(String email, String password) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+    // Rejected credentials complete with a KeycloakAuthException whose isRejected() is true
+    public CompletableFuture<TokenResponse> loginWithPassword(String email, String password) {
+        List<NameValuePair> form = clientForm();
+        form.add(new BasicNameValuePair("grant_type", "password"));
+        form.add(new BasicNameValuePair("username", email));
+        form.add(new BasicNameValuePair("password", password));
 
-        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
-        form.add("grant_type", "password");
-        form.add("client_id", props.getClientId());
+        return post(KeycloakEndpoint.TOKEN, tokenUrl(), form)
+                .thenApply(resp -> parse(expectSuccess(resp), TokenResponse.class));
+    }
 
-        if (props.getClientSecret() != null && !props.getClientSecret().isBlank()) {
-            form.add("client_secret", props.getClientSecret());
-        }
+    public CompletableFuture<IntrospectionResponse> introspectToken(String token) {
+        List<NameValuePair> form = clientForm();
+        form.add(new BasicNameValuePair("token", token));
+
+        return post(KeycloakEndpoint.INTROSPECT, introspectUrl(), form)
+                .thenApply(resp -> {
+                    Map<String, Object> claims = parse(expectSuccess(resp), CLAIMS);
+                    return new IntrospectionResponse(Boolean.TRUE.equals(claims.get("active")), claims);
+                });
+    }
 
-        form.add("username", email);
-        form.add("password", password);
+    // false when Keycloak rejected the refresh token; transport failures complete exceptionally
+    public CompletableFuture<Boolean> logoutByRefreshToken(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) return CompletableFuture.completedFuture(false);
 
-        HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(form, headers);
+        List<NameValuePair> form = clientForm();
+        form.add(new BasicNameValuePair("refresh_token", refreshToken));
 
-        try {
-            ResponseEntity<Map> resp = restTemplate.postForEntity(tokenUrl(), request, Map.class);
-            if (resp.getStatusCode() == HttpStatus.OK) {
-                return resp.getBody();
-            } else {
-                return null;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
-    }
+        return post(KeycloakEndpoint.LOGOUT, logoutUrl(), form)
+                .thenApply(resp -> {
+                    int status = resp.getCode();
+                    if (status >= 400 && status < 500) return false;
+                    expectSuccess(resp);
 
-    public Map<String, Object> introspectToken(String token) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+                    // Access tokens of this session remain valid until exp - deny them locally
+                    revocationService.revokeSession(sessionIdOf(refreshToken));
+                    return true;
+                });
+    }
 
-        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
-        form.add("token", token);
-        form.add("client_id", props.getClientId());
+    private List<NameValuePair> clientForm() {
+        List<NameValuePair> form = new ArrayList<>(5);
+        form.add(new BasicNameValuePair("client_id", props.getClientId()));
         if (props.getClientSecret() != null && !props.getClientSecret().isBlank()) {
-            form.add("client_secret", props.getClientSecret());
+            form.add(new BasicNameValuePair("client_secret", props.getClientSecret()));
         }
+        return form;
+    }
 
-        HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(form, headers);
+    private CompletableFuture<SimpleHttpResponse> post(KeycloakEndpoint endpoint, String url, List<NameValuePair> form) {
+        SimpleHttpRequest request = SimpleHttpRequest.create(Method.POST.name(), url);
+        request.setBody(WWWFormCodec.format(form, StandardCharsets.UTF_8), ContentType.APPLICATION_FORM_URLENCODED);
+        request.setConfig(requestConfigs.get(endpoint));
 
-        try {
-            ResponseEntity<Map> resp = restTemplate.postForEntity(introspectUrl(), request, Map.class);
-            if (resp.getStatusCode() == HttpStatus.OK) {
-                return resp.getBody();
-            } else {
-                return null;
+        CompletableFuture<SimpleHttpResponse> future = new CompletableFuture<>();
+        long start = System.nanoTime();
+
+        Future<SimpleHttpResponse> call = httpClient.execute(request, new FutureCallback<>() {
+            @Override
+            public void completed(SimpleHttpResponse response) {
+                metrics.record(endpoint, System.nanoTime() - start, response.getCode() >= 500);
+                future.complete(response);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
-    }
 
-    public boolean logoutByRefreshToken(String refreshToken) {
-        if (refreshToken == null || refreshToken.isBlank()) return false;
+            @Override
+            public void failed(Exception e) {
+                metrics.record(endpoint, System.nanoTime() - start, true);
+                future.completeExceptionally(new KeycloakAuthException("Keycloak " + endpoint.name().toLowerCase() + " call failed", e));
+            }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+            @Override
+            public void cancelled() {
+                metrics.record(endpoint, System.nanoTime() - start, true);
+                future.completeExceptionally(new KeycloakAuthException(0, "Keycloak " + endpoint.name().toLowerCase() + " call cancelled"));
+            }
+        });
+
+        // Total deadline: pool wait, connect and the whole response together
+        long total = totalTimeouts.get(endpoint);
+        ScheduledFuture<?> deadline = deadlines.schedule(() -> {
+            if (future.completeExceptionally(new KeycloakAuthException(0,
+                    "Keycloak " + endpoint.name().toLowerCase() + " call exceeded " + total + " ms"))) {
+                call.cancel(true);
+            }
+        }, total, TimeUnit.MILLISECONDS);
+        future.whenComplete((response, error) -> deadline.cancel(false));
+        return future;
+    }
 
-        MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
-        form.add("refresh_token", refreshToken);
-        form.add("client_id", props.getClientId());
-        if (props.getClientSecret() != null && !props.getClientSecret().isBlank()) {
-            form.add("client_secret", props.getClientSecret());
+    // Any 2xx: the logout endpoint answers 204 No Content
+    private static byte[] expectSuccess(SimpleHttpResponse response) {
+        if (response.getCode() < 200 || response.getCode() >= 300) {
+            throw new KeycloakAuthException(response.getCode(), "Keycloak returned " + response.getCode() + ": " + response.getBodyText());
         }
+        byte[] body = response.getBodyBytes();
+        return body != null ? body : new byte[0];
+    }
 
-        HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(form, headers);
-
+    private <T> T parse(byte[] body, Class<T> type) {
         try {
-            ResponseEntity<String> resp = restTemplate.postForEntity(logoutUrl(), request, String.class);
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new KeycloakAuthException("Unreadable Keycloak response", e);
+        }
+    }
 
-            return resp.getStatusCode().is2xxSuccessful();
+    private <T> T parse(byte[] body, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new KeycloakAuthException("Unreadable Keycloak response", e);
+        }
+    }
 
+    // Keycloak has already accepted the refresh token at this point, so its claims
+    // are only read, not verified
+    private String sessionIdOf(String refreshToken) {
+        try {
+            JWTClaimsSet claims = JWTParser.parse(refreshToken).getJWTClaimsSet();
+            Object sid = claims.getClaim("sid");
+            if (sid == null) sid = claims.getClaim("session_state");
+            return sid != null ? sid.toString() : null;
         } catch (Exception e) {
-            e.printStackTrace();
-            return false;
+            return null;
         }
     }
 
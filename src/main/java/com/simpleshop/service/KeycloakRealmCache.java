@@ -0,0 +1,91 @@
+package com.simpleshop.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.simpleshop.util.CacheStatistics;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.representations.idm.GroupRepresentation;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Realm roles and group ids change rarely, but user provisioning needs them on every call.
+// Entries are reloaded in the background after refresh-after; concurrent misses for the same
+// name share one admin call; invalidate*() drops entries when the realm is changed on purpose.
+@Component
+public class KeycloakRealmCache {
+
+    private final Keycloak keycloakAdmin;
+    private final String realm;
+
+    private final LoadingCache<String, RoleRepresentation> roles;
+    private final LoadingCache<String, Optional<String>> groupIds;
+
+    public KeycloakRealmCache(Keycloak keycloakAdmin,
+                              @Value("${keycloak.realm}") String realm,
+                              @Value("${keycloak.realm-cache.refresh-after-seconds:300}") long refreshAfterSeconds,
+                              @Value("${keycloak.realm-cache.expire-after-seconds:3600}") long expireAfterSeconds) {
+        this.keycloakAdmin = keycloakAdmin;
+        this.realm = realm;
+
+        this.roles = Caffeine.newBuilder()
+                .maximumSize(1_000)
+                .refreshAfterWrite(Duration.ofSeconds(refreshAfterSeconds))
+                .expireAfterWrite(Duration.ofSeconds(expireAfterSeconds))
+                .recordStats()
+                .build(this::loadRole);
+
+        this.groupIds = Caffeine.newBuilder()
+                .maximumSize(1_000)
+                .refreshAfterWrite(Duration.ofSeconds(refreshAfterSeconds))
+                .expireAfterWrite(Duration.ofSeconds(expireAfterSeconds))
+                .recordStats()
+                .build(this::loadGroupId);
+    }
+
+    public RoleRepresentation role(String roleName) {
+        return roles.get(roleName);
+    }
+
+    // Top-level group id by name (case-insensitive), empty if the realm has no such group
+    public Optional<String> groupId(String groupName) {
+        return groupIds.get(groupName.toUpperCase());
+    }
+
+    public void invalidateRole(String roleName) {
+        roles.invalidate(roleName);
+    }
+
+    public void invalidateGroup(String groupName) {
+        groupIds.invalidate(groupName.toUpperCase());
+    }
+
+    public void invalidateAll() {
+        roles.invalidateAll();
+        groupIds.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("roles", CacheStatistics.describe(roles));
+        stats.put("groups", CacheStatistics.describe(groupIds));
+        return stats;
+    }
+
+    private RoleRepresentation loadRole(String roleName) {
+        return keycloakAdmin.realm(realm).roles().get(roleName).toRepresentation();
+    }
+
+    // Server-side search instead of listing every group in the realm
+    private Optional<String> loadGroupId(String groupName) {
+        return keycloakAdmin.realm(realm).groups().groups(groupName, 0, 50).stream()
+                .filter(g -> g.getName().equalsIgnoreCase(groupName))
+                .map(GroupRepresentation::getId)
+                .findFirst();
+    }
+}
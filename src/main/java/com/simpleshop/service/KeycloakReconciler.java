@@ -0,0 +1,503 @@
+package com.simpleshop.service;
+
+import com.simpleshop.dto.CustomerDTO;
+import com.simpleshop.event.CustomerChangedEvent;
+import com.simpleshop.model.ReconciliationCheckpoint;
+import com.simpleshop.repository.CustomerJdbcRepository;
+import com.simpleshop.repository.ReconciliationCheckpointRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Background pass that finds and repairs drift between customers and the Keycloak realm
+// (a Keycloak user created by a registration whose save failed, a block that reached only
+// one side, profile edits that never made it to Keycloak).
+//
+// Keycloak is read page by page in its own order (username). Each page is a chunk covering
+// [first username, first username of the next page); the customers in that range are read
+// with one query and both sides are reduced to a checksum. Only chunks whose checksums differ
+// are compared row by row, and every repair re-reads both the customer and the Keycloak user
+// first and is skipped if either changed since the chunk was read, so pages shifting under a
+// running pass or a concurrent edit cost extra calls but never a wrong repair.
+//
+// The database is the source of truth for profile fields and the enabled flag. Keycloak users
+// without a customer are reported, and only deleted with reconciler.delete-orphans=true; users
+// younger than reconciler.orphan-min-age-minutes or whose username has an open provisioning
+// task are never deleted, since their customer may simply not be linked yet.
+@Component
+public class KeycloakReconciler {
+
+    private static final String CHECKPOINT = "keycloak-customers";
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    private final KeycloakService keycloakService;
+    private final ProvisioningOutbox provisioningOutbox;
+    private final RevocationService revocationService;
+    private final CustomerJdbcRepository customerJdbcRepo;
+    private final ReconciliationCheckpointRepository checkpointRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher events;
+
+    private final boolean enabled;
+    private final long intervalMinutes;
+    private final int chunkSize;
+    private final int parallelism;
+    private final long permitIntervalNanos;
+    private final boolean deleteOrphans;
+    private final Duration orphanMinAge;
+    private final String node = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong nextPermitNanos = new AtomicLong(System.nanoTime());
+    private volatile Report current;
+    private volatile Map<String, Object> lastReport;
+
+    private ScheduledExecutorService scheduler;
+
+    public KeycloakReconciler(KeycloakService keycloakService,
+                              ProvisioningOutbox provisioningOutbox,
+                              RevocationService revocationService,
+                              CustomerJdbcRepository customerJdbcRepo,
+                              ReconciliationCheckpointRepository checkpointRepo,
+                              JdbcTemplate jdbcTemplate,
+                              ApplicationEventPublisher events,
+                              @Value("${reconciler.enabled:false}") boolean enabled,
+                              @Value("${reconciler.interval-minutes:60}") long intervalMinutes,
+                              @Value("${reconciler.chunk-size:200}") int chunkSize,
+                              @Value("${reconciler.parallelism:2}") int parallelism,
+                              @Value("${reconciler.keycloak-requests-per-second:20}") double requestsPerSecond,
+                              @Value("${reconciler.delete-orphans:false}") boolean deleteOrphans,
+                              @Value("${reconciler.orphan-min-age-minutes:60}") long orphanMinAgeMinutes) {
+        this.keycloakService = keycloakService;
+        this.provisioningOutbox = provisioningOutbox;
+        this.revocationService = revocationService;
+        this.customerJdbcRepo = customerJdbcRepo;
+        this.checkpointRepo = checkpointRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.events = events;
+        this.enabled = enabled;
+        this.intervalMinutes = intervalMinutes;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.permitIntervalNanos = (long) (1_000_000_000L / requestsPerSecond);
+        this.deleteOrphans = deleteOrphans;
+        this.orphanMinAge = Duration.ofMinutes(orphanMinAgeMinutes);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(namedThreads("keycloak-reconciler-"));
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::runPass, 1, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    // Admin trigger; false when a pass is already running on this node
+    public boolean runNow() {
+        if (running.get()) return false;
+        scheduler.execute(this::runPass);
+        return true;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("running", running.get());
+        Report report = current;
+        status.put("current", report == null ? null : report.toMap());
+        status.put("last", lastReport);
+        checkpointRepo.findById(CHECKPOINT).ifPresent(cp -> {
+            Map<String, Object> checkpoint = new LinkedHashMap<>();
+            checkpoint.put("nextOffset", cp.getNextOffset());
+            checkpoint.put("passStartedAt", cp.getPassStartedAt());
+            checkpoint.put("lastCompletedAt", cp.getLastCompletedAt());
+            checkpoint.put("leaseOwner", cp.getLeaseOwner());
+            checkpoint.put("leaseUntil", cp.getLeaseUntil());
+            status.put("checkpoint", checkpoint);
+        });
+        return status;
+    }
+
+    void runPass() {
+        if (!running.compareAndSet(false, true)) return;
+        Report report = null;
+        ExecutorService pool = null;
+        try {
+            if (!claimLease()) return;
+
+            ReconciliationCheckpoint checkpoint = checkpointRepo.findById(CHECKPOINT).orElseThrow();
+            int offset = checkpoint.getNextOffset();
+            if (checkpoint.getPassStartedAt() == null) {
+                jdbcTemplate.update("UPDATE reconciliation_checkpoints SET pass_started_at = ? WHERE name = ?",
+                        Timestamp.from(Instant.now()), CHECKPOINT);
+            }
+
+            report = new Report(offset);
+            current = report;
+            pool = Executors.newFixedThreadPool(parallelism, namedThreads("keycloak-reconciler-chunk-"));
+
+            // Chunks run `parallelism` at a time; progress only advances over a contiguous
+            // prefix of finished chunks, so a resumed pass never skips one.
+            String previousUpper = null;
+            boolean done = false;
+            while (!done) {
+                List<Future<ChunkResult>> wave = new ArrayList<>(parallelism);
+                for (int i = 0; i < parallelism; i++) {
+                    int chunkOffset = offset + i * chunkSize;
+                    Report r = report;
+                    wave.add(pool.submit(() -> reconcileChunk(chunkOffset, r)));
+                }
+
+                for (Future<ChunkResult> future : wave) {
+                    ChunkResult result = future.get();
+                    if (done) continue;
+
+                    // Keycloak ran out right after a full page: customers at or past that page's
+                    // upper bound have no Keycloak counterpart in this pass
+                    if (result.empty() && previousUpper != null) {
+                        reconcileRange(previousUpper, null, List.of(), report);
+                    }
+
+                    offset += chunkSize;
+                    done = result.last();
+                    previousUpper = result.upperBound();
+                    if (!saveProgress(offset, done)) {
+                        System.err.println("Reconciler lost its lease; stopping this pass");
+                        return;
+                    }
+                }
+            }
+            report.completed = true;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Checkpoint stays at the last finished chunk; the next run resumes there
+            System.err.println("Reconciliation pass failed: " + e.getMessage());
+        } finally {
+            if (pool != null) pool.shutdownNow();
+            if (report != null) {
+                report.finishedAt = Instant.now();
+                lastReport = report.toMap();
+                System.out.println("Reconciliation pass: " + lastReport);
+                releaseLease();
+            }
+            current = null;
+            running.set(false);
+        }
+    }
+
+    private ChunkResult reconcileChunk(int offset, Report report) {
+        permit();
+        List<UserRepresentation> page = keycloakService.listUsers(offset, chunkSize + 1);
+        if (page.isEmpty()) return new ChunkResult(true, true, null);
+
+        // One extra user marks where the next chunk starts
+        boolean last = page.size() <= chunkSize;
+        String from = offset == 0 ? null : lower(page.get(0).getUsername());
+        String upper = last ? null : lower(page.get(chunkSize).getUsername());
+
+        reconcileRange(from, upper, last ? page : page.subList(0, chunkSize), report);
+        return new ChunkResult(false, last, upper);
+    }
+
+    private void reconcileRange(String from, String to, List<UserRepresentation> users, Report report) {
+        List<CustomerDTO> rows = customerJdbcRepo.findByUsernameRange(from, to);
+        report.chunks.incrementAndGet();
+        report.customers.addAndGet(rows.size());
+        report.keycloakUsers.addAndGet(users.size());
+
+        long rowsChecksum = 0;
+        for (CustomerDTO row : rows) rowsChecksum += fingerprint(row);
+        long usersChecksum = 0;
+        for (UserRepresentation user : users) usersChecksum += fingerprint(user);
+        if (rowsChecksum == usersChecksum) return;
+
+        report.chunksRepaired.incrementAndGet();
+
+        Map<String, UserRepresentation> byId = new HashMap<>();
+        Map<String, UserRepresentation> byUsername = new HashMap<>();
+        for (UserRepresentation user : users) {
+            byId.put(user.getId(), user);
+            byUsername.put(lower(user.getUsername()), user);
+        }
+
+        for (CustomerDTO row : rows) {
+            try {
+                if (row.getKeycloakId() == null) {
+                    UserRepresentation user = byUsername.get(lower(row.getUserName()));
+                    String keycloakId = user != null ? user.getId() : lookupIdByUsername(row.getUserName());
+                    if (keycloakId != null) byId.remove(keycloakId);
+                    link(row, keycloakId, report);
+                    continue;
+                }
+
+                UserRepresentation user = byId.remove(row.getKeycloakId());
+                if (user == null) {
+                    // Renamed on one side only, so it sits in another chunk - or really gone
+                    permit();
+                    user = keycloakService.findUserById(row.getKeycloakId()).orElse(null);
+                }
+                if (user == null) {
+                    report.missingInKeycloak.incrementAndGet();
+                    System.err.println("Reconciler: Keycloak user " + row.getKeycloakId() + " of customer " + row.getCustomerId() + " does not exist");
+                    continue;
+                }
+                repair(row, user, report);
+
+            } catch (Exception e) {
+                report.errors.incrementAndGet();
+                System.err.println("Reconciler: customer " + row.getCustomerId() + " failed: " + e.getMessage());
+            }
+        }
+
+        // Keycloak users with no customer row in this range
+        for (UserRepresentation user : byId.values()) {
+            try {
+                if (lower(user.getUsername()).startsWith("service-account-")) continue;
+                if (customerJdbcRepo.findByKeycloakId(user.getId()).isPresent()) continue; // repaired from its own chunk
+
+                report.orphans.incrementAndGet();
+                System.err.println("Reconciler: Keycloak user " + user.getUsername() + " (" + user.getId() + ") has no customer");
+                if (deleteOrphans) deleteOrphan(user, report);
+            } catch (Exception e) {
+                report.errors.incrementAndGet();
+                System.err.println("Reconciler: Keycloak user " + user.getId() + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Customer without keycloakId: Keycloak user created, but the id was never stored
+    private void link(CustomerDTO row, String keycloakId, Report report) {
+        if (keycloakId == null) {
+            report.unprovisioned.incrementAndGet();
+            return;
+        }
+        if (customerJdbcRepo.findByKeycloakId(keycloakId).isPresent()) {
+            report.errors.incrementAndGet();
+            System.err.println("Reconciler: Keycloak user " + keycloakId + " already belongs to another customer, not linking " + row.getCustomerId());
+            return;
+        }
+        if (customerJdbcRepo.setKeycloakId(row.getCustomerId(), keycloakId) == 1) {
+            events.publishEvent(new CustomerChangedEvent(row.getCustomerId()));
+            report.linked.incrementAndGet();
+        }
+    }
+
+    // Only a user that is old enough, still unlinked and not about to be linked by provisioning
+    private void deleteOrphan(UserRepresentation user, Report report) {
+        Long created = user.getCreatedTimestamp();
+        if (created == null || Instant.ofEpochMilli(created).isAfter(Instant.now().minus(orphanMinAge))
+                || provisioningOutbox.hasOpenTaskForUsername(user.getUsername())
+                || customerJdbcRepo.findByKeycloakId(user.getId()).isPresent()) {
+            report.orphansKept.incrementAndGet();
+            return;
+        }
+        permit();
+        if (keycloakService.deleteUserByKeycloakId(user.getId())) report.orphansDeleted.incrementAndGet();
+    }
+
+    // Database wins: enabled flag first (access), then the profile fields that differ.
+    // Both sides are read again first; if either moved since the chunk was read, the
+    // repair is left to the next pass rather than made from stale data.
+    private void repair(CustomerDTO row, UserRepresentation user, Report report) {
+        CustomerDTO freshRow = customerJdbcRepo.findByCustomerId(row.getCustomerId()).orElse(null);
+        permit();
+        UserRepresentation freshUser = keycloakService.findUserById(user.getId()).orElse(null);
+        if (freshRow == null || freshUser == null
+                || fingerprint(freshRow) != fingerprint(row) || fingerprint(freshUser) != fingerprint(user)) {
+            report.skippedChanged.incrementAndGet();
+            return;
+        }
+
+        if (row.isActive() != Boolean.TRUE.equals(user.isEnabled())) {
+            // enable/disable are a read and a write
+            permit();
+            permit();
+            // Same revocation as block/unblockCustomer: tokens issued before the disable stay valid until exp
+            if (row.isActive()) {
+                keycloakService.enableUser(user.getId());
+                revocationService.unblockSubject(user.getId());
+            } else {
+                keycloakService.disableUser(user.getId());
+                revocationService.blockSubject(user.getId());
+            }
+            report.enabledFixed.incrementAndGet();
+        }
+
+        String userName = lower(row.getUserName()).equals(lower(user.getUsername())) ? null : nullToEmpty(row.getUserName());
+        String email = lower(row.getEmail()).equals(lower(user.getEmail())) ? null : nullToEmpty(row.getEmail());
+        String firstName = nullToEmpty(row.getFirstName()).equals(nullToEmpty(user.getFirstName())) ? null : nullToEmpty(row.getFirstName());
+        String lastName = nullToEmpty(row.getLastName()).equals(nullToEmpty(user.getLastName())) ? null : nullToEmpty(row.getLastName());
+
+        if (userName != null || email != null || firstName != null || lastName != null) {
+            permit();
+            keycloakService.updateKeycloakUser(user.getId(), userName, email, firstName, lastName);
+            report.profilesFixed.incrementAndGet();
+        }
+    }
+
+    private String lookupIdByUsername(String userName) {
+        permit();
+        return keycloakService.findUserIdByUsername(userName);
+    }
+
+    // Both sides reduced to the same canonical fields; summed, so order does not matter
+    private static long fingerprint(CustomerDTO row) {
+        return fnv64(row.getKeycloakId() + '|' + lower(row.getUserName()) + '|' + lower(row.getEmail()) + '|'
+                + nullToEmpty(row.getFirstName()) + '|' + nullToEmpty(row.getLastName()) + '|' + row.isActive());
+    }
+
+    private static long fingerprint(UserRepresentation user) {
+        return fnv64(user.getId() + '|' + lower(user.getUsername()) + '|' + lower(user.getEmail()) + '|'
+                + nullToEmpty(user.getFirstName()) + '|' + nullToEmpty(user.getLastName()) + '|' + Boolean.TRUE.equals(user.isEnabled()));
+    }
+
+    private static long fnv64(String s) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Paces Keycloak calls across all chunk workers to reconciler.keycloak-requests-per-second
+    private void permit() {
+        long slot = nextPermitNanos.updateAndGet(next -> Math.max(next, System.nanoTime()) + permitIntervalNanos) - permitIntervalNanos;
+        long wait;
+        while ((wait = slot - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+            if (Thread.currentThread().isInterrupted()) throw new CancellationException("Reconciler stopped");
+        }
+    }
+
+    private boolean claimLease() {
+        if (!checkpointRepo.existsById(CHECKPOINT)) {
+            try {
+                checkpointRepo.save(new ReconciliationCheckpoint(CHECKPOINT, 0, null, null, null, null, Instant.now()));
+            } catch (DataIntegrityViolationException ignored) {
+                // Another node created it first
+            }
+        }
+        Instant now = Instant.now();
+        return jdbcTemplate.update("""
+                        UPDATE reconciliation_checkpoints SET lease_owner = ?, lease_until = ?, updated_at = ?
+                         WHERE name = ? AND (lease_until IS NULL OR lease_until < ? OR lease_owner = ?)
+                        """,
+                node, Timestamp.from(now.plus(LEASE)), Timestamp.from(now), CHECKPOINT, Timestamp.from(now), node) == 1;
+    }
+
+    // Records progress and renews the lease; false if another node has taken over
+    private boolean saveProgress(int nextOffset, boolean completed) {
+        Timestamp now = Timestamp.from(Instant.now());
+        Timestamp leaseUntil = Timestamp.from(Instant.now().plus(LEASE));
+        if (completed) {
+            return jdbcTemplate.update("""
+                            UPDATE reconciliation_checkpoints
+                               SET next_offset = 0, pass_started_at = NULL, last_completed_at = ?, lease_until = ?, updated_at = ?
+                             WHERE name = ? AND lease_owner = ?
+                            """,
+                    now, leaseUntil, now, CHECKPOINT, node) == 1;
+        }
+        return jdbcTemplate.update("""
+                        UPDATE reconciliation_checkpoints SET next_offset = ?, lease_until = ?, updated_at = ?
+                         WHERE name = ? AND lease_owner = ?
+                        """,
+                nextOffset, leaseUntil, now, CHECKPOINT, node) == 1;
+    }
+
+    private void releaseLease() {
+        jdbcTemplate.update("UPDATE reconciliation_checkpoints SET lease_owner = NULL, lease_until = NULL WHERE name = ? AND lease_owner = ?",
+                CHECKPOINT, node);
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT);
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+
+    private record ChunkResult(boolean empty, boolean last, String upperBound) {
+    }
+
+    private static final class Report {
+        final int startOffset;
+        final Instant startedAt = Instant.now();
+        volatile Instant finishedAt;
+        volatile boolean completed;
+        final AtomicLong chunks = new AtomicLong();
+        final AtomicLong chunksRepaired = new AtomicLong();
+        final AtomicLong customers = new AtomicLong();
+        final AtomicLong keycloakUsers = new AtomicLong();
+        final AtomicLong linked = new AtomicLong();
+        final AtomicLong enabledFixed = new AtomicLong();
+        final AtomicLong profilesFixed = new AtomicLong();
+        final AtomicLong missingInKeycloak = new AtomicLong();
+        final AtomicLong unprovisioned = new AtomicLong();
+        final AtomicLong orphans = new AtomicLong();
+        final AtomicLong orphansDeleted = new AtomicLong();
+        final AtomicLong orphansKept = new AtomicLong();
+        final AtomicLong skippedChanged = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+
+        Report(int startOffset) {
+            this.startOffset = startOffset;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("startOffset", startOffset);
+            map.put("startedAt", startedAt);
+            map.put("finishedAt", finishedAt);
+            map.put("completed", completed);
+            map.put("chunks", chunks.get());
+            map.put("chunksRepaired", chunksRepaired.get());
+            map.put("customers", customers.get());
+            map.put("keycloakUsers", keycloakUsers.get());
+            map.put("linked", linked.get());
+            map.put("enabledFixed", enabledFixed.get());
+            map.put("profilesFixed", profilesFixed.get());
+            map.put("missingInKeycloak", missingInKeycloak.get());
+            map.put("unprovisioned", unprovisioned.get());
+            map.put("orphans", orphans.get());
+            map.put("orphansDeleted", orphansDeleted.get());
+            map.put("orphansKept", orphansKept.get());
+            map.put("skippedChanged", skippedChanged.get());
+            map.put("errors", errors.get());
+            return map;
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        ThreadFactory delegate = Executors.defaultThreadFactory();
+        return runnable -> {
+            Thread t = delegate.newThread(runnable);
+            t.setName(prefix + t.threadId());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
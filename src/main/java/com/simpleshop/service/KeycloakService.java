@@ -2,11 +2,15 @@ package com.simpleshop.service;
 
 import org.keycloak.admin.client.CreatedResponseUtil;
 import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.UserResource;
 import org.keycloak.admin.client.resource.UsersResource;
 import org.keycloak.representations.idm.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.simpleshop.exception.KeycloakUnavailableException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.ServerErrorException;
 import jakarta.ws.rs.core.Response;
 
 import java.util.*;
@@ -14,70 +18,186 @@ import java.util.*;
 @Service
 public class KeycloakService {
 
+    // Written on users this service creates, so a retry can tell its own user from someone else's
+    public static final String CUSTOMER_ID_ATTRIBUTE = "customerId";
+
     private final Keycloak keycloakAdmin;
     private final String realm;
+    private final KeycloakRealmCache realmCache;
+    private final KeycloakAdminGuard guard;
 
-    public KeycloakService(Keycloak keycloakAdmin, @Value("${keycloak.realm}") String realm) {
+    public KeycloakService(Keycloak keycloakAdmin, @Value("${keycloak.realm}") String realm, KeycloakRealmCache realmCache,
+                           KeycloakAdminGuard guard) {
         this.keycloakAdmin = keycloakAdmin;
         this.realm = realm;
+        this.realmCache = realmCache;
+        this.guard = guard;
     }
 
     public String createKeycloakUser(String username, String email, String password, String roleName, boolean active, String firstName, String lastName) {
+        return createKeycloakUser(null, username, email, password, roleName, active, firstName, lastName);
+    }
+
+    public String createKeycloakUser(String customerId, String username, String email, String password, String roleName, boolean active, String firstName, String lastName) {
         try {
-            UserRepresentation user = new UserRepresentation();
-            user.setUsername(username);
-            user.setEmail(email);
-            user.setEnabled(active);
-            user.setEmailVerified(true);
-            user.setFirstName(firstName);
-            user.setLastName(lastName);
-
-            CredentialRepresentation cred = new CredentialRepresentation();
-            cred.setTemporary(false);
-            cred.setType(CredentialRepresentation.PASSWORD);
-            cred.setValue(password);
-            user.setCredentials(List.of(cred));
-
-            Response response = keycloakAdmin.realm(realm).users().create(user);
-            System.out.println("Keycloak response status: " + response.getStatus());
-
-            if (response.getStatus() != 201) {
-                response.close();
-                return null;
-            }
+            return guard.call(KeycloakAdminGuard.Operation.CREATE_USER,
+                    () -> createUser(customerId, username, email, password, roleName, active, firstName, lastName));
+        } catch (KeycloakUnavailableException e) {
+            // Not a rejected user: the caller answers 503 and the client retries
+            throw e;
+        } catch (Exception e) {
+            return null;
+        }
+    }
 
-            String kcId = CreatedResponseUtil.getCreatedId(response);
-            System.out.println("createKeycloakUser : kcID 1 " + kcId);
+    private String createUser(String customerId, String username, String email, String password, String roleName, boolean active, String firstName, String lastName) {
+        UserRepresentation user = newUser(username, email, password, active, firstName, lastName);
+        if (customerId != null) user.setAttributes(Map.of(CUSTOMER_ID_ATTRIBUTE, List.of(customerId)));
 
+        Response response = keycloakAdmin.realm(realm).users().create(user);
+        System.out.println("Keycloak response status: " + response.getStatus());
+
+        if (response.getStatus() >= 500) {
             response.close();
+            throw new ServerErrorException(response.getStatus());
+        }
+        if (response.getStatus() != 201) {
+            response.close();
+            return null;
+        }
 
-            // Assign Role
-            RoleRepresentation role = keycloakAdmin.realm(realm).roles().get(roleName).toRepresentation();
+        String kcId = CreatedResponseUtil.getCreatedId(response);
+        System.out.println("createKeycloakUser : kcID 1 " + kcId);
 
-            keycloakAdmin.realm(realm).users().get(kcId).roles().realmLevel().add(List.of(role));
+        response.close();
 
-            // Assign USER Group
-            List<GroupRepresentation> groups = keycloakAdmin.realm(realm).groups().groups();
+        // Assign Role (representation comes from the realm cache)
+        UserResource created = keycloakAdmin.realm(realm).users().get(kcId);
+        try {
+            created.roles().realmLevel().add(List.of(realmCache.role(roleName)));
+        } catch (NotFoundException e) {
+            // Role was deleted or recreated since it was cached
+            realmCache.invalidateRole(roleName);
+            created.roles().realmLevel().add(List.of(realmCache.role(roleName)));
+        }
 
-            GroupRepresentation userGroup = groups.stream().filter(g -> g.getName().equalsIgnoreCase("USER")).findFirst().orElse(null);
+        // Assign USER Group
+        Optional<String> userGroupId = realmCache.groupId("USER");
 
-            System.out.println("userGroup : userGroup" + userGroup);
+        System.out.println("userGroup : userGroup" + userGroupId);
 
-            if (userGroup != null) {
-                System.out.println("userGroup : userGroup" + userGroup);
-                keycloakAdmin.realm(realm).users().get(kcId).joinGroup(userGroup.getId());
+        if (userGroupId.isPresent()) {
+            try {
+                created.joinGroup(userGroupId.get());
+            } catch (NotFoundException e) {
+                realmCache.invalidateGroup("USER");
+                realmCache.groupId("USER").ifPresent(created::joinGroup);
             }
-            System.out.println("createKeycloakUser : kcID" + kcId);
+        }
+        System.out.println("createKeycloakUser : kcID" + kcId);
 
-            return kcId;
-        } catch (Exception e) {
-            return null;
+        return kcId;
+    }
+
+    // Creates a whole chunk of users (credentials, USER realm role and USER group included)
+    // with one partial-import call. Usernames that already exist are skipped, never overwritten.
+    // Returns lower-cased username -> Keycloak id for the users that were actually added.
+    public Map<String, String> importUsers(List<UserRepresentation> users) {
+        return guard.call(KeycloakAdminGuard.Operation.IMPORT_USERS, () -> partialImport(users));
+    }
+
+    private Map<String, String> partialImport(List<UserRepresentation> users) {
+        for (UserRepresentation user : users) {
+            user.setRealmRoles(List.of("USER"));
+            realmCache.groupId("USER").ifPresent(id -> user.setGroups(List.of("/USER")));
+        }
+
+        PartialImportRepresentation partialImport = new PartialImportRepresentation();
+        partialImport.setIfResourceExists("SKIP");
+        partialImport.setUsers(users);
+
+        try (Response response = keycloakAdmin.realm(realm).partialImport(partialImport)) {
+            if (response.getStatus() >= 500) {
+                throw new ServerErrorException("Keycloak partial import failed with HTTP " + response.getStatus(), response.getStatus());
+            }
+            if (response.getStatus() != 200) {
+                throw new IllegalStateException("Keycloak partial import failed with HTTP " + response.getStatus());
+            }
+
+            Map<?, ?> body = response.readEntity(Map.class);
+            Map<String, String> added = new HashMap<>();
+            Object results = body.get("results");
+            if (results instanceof List<?> list) {
+                for (Object r : list) {
+                    if (r instanceof Map<?, ?> result && "ADDED".equals(result.get("action"))
+                            && "USER".equals(result.get("resourceType"))) {
+                        added.put(String.valueOf(result.get("resourceName")).toLowerCase(), String.valueOf(result.get("id")));
+                    }
+                }
+            }
+            return added;
         }
     }
 
+    public UserRepresentation newUser(String username, String email, String password, boolean active, String firstName, String lastName) {
+        UserRepresentation user = new UserRepresentation();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setEnabled(active);
+        user.setEmailVerified(true);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+
+        CredentialRepresentation cred = new CredentialRepresentation();
+        cred.setTemporary(false);
+        cred.setType(CredentialRepresentation.PASSWORD);
+        cred.setValue(password);
+        user.setCredentials(List.of(cred));
+        return user;
+    }
+
+    // Exact username lookup, used to make retried provisioning idempotent
+    public String findUserIdByUsername(String username) {
+        List<UserRepresentation> users = guard.call(KeycloakAdminGuard.Operation.READ,
+                () -> keycloakAdmin.realm(realm).users().searchByUsername(username, true));
+        return users.isEmpty() ? null : users.get(0).getId();
+    }
+
+    // True only when the user carries this customer's id, i.e. it was created for it
+    public boolean isCreatedFor(String keycloakId, String customerId) {
+        return findUserById(keycloakId)
+                .map(UserRepresentation::getAttributes)
+                .map(attributes -> attributes.get(CUSTOMER_ID_ATTRIBUTE))
+                .map(values -> values.contains(customerId))
+                .orElse(false);
+    }
+
+    // One page in Keycloak's listing order (by username); brief = no attributes or access info
+    public List<UserRepresentation> listUsers(int first, int max) {
+        return guard.call(KeycloakAdminGuard.Operation.READ,
+                () -> keycloakAdmin.realm(realm).users().search(null, first, max, true));
+    }
+
+    public Optional<UserRepresentation> findUserById(String keycloakId) {
+        return guard.call(KeycloakAdminGuard.Operation.READ, () -> {
+            try {
+                return Optional.of(keycloakAdmin.realm(realm).users().get(keycloakId).toRepresentation());
+            } catch (NotFoundException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
     public boolean deleteUserByKeycloakId(String keycloakId) {
+        return deleteUser(KeycloakAdminGuard.Operation.DELETE_USER, keycloakId);
+    }
+
+    private boolean deleteUser(KeycloakAdminGuard.Operation op, String keycloakId) {
         try {
-            keycloakAdmin.realm(realm).users().get(keycloakId).remove();
+            guard.run(op, () -> keycloakAdmin.realm(realm).users().get(keycloakId).remove());
+            return true;
+        } catch (NotFoundException e) {
+            // Already gone in Keycloak
             return true;
         } catch (Exception e) {
             return false;
@@ -85,11 +205,12 @@ public class KeycloakService {
     }
 
 
+    // Partial update: null means unchanged, and Keycloak leaves fields absent from the
+    // representation alone. enabled is never sent, so a blocked user stays blocked.
     public void updateKeycloakUser(String keycloakId, String username, String email, String firstName, String lastName) {
         try {
             UserRepresentation user = new UserRepresentation();
 
-            // Only these 4 fields will be sent to Keycloak
             if (username != null) user.setUsername(username);
             if (firstName != null) user.setFirstName(firstName);
             if (lastName != null) user.setLastName(lastName);
@@ -97,9 +218,10 @@ public class KeycloakService {
                 user.setEmail(email);
                 user.setEmailVerified(true);
             }
-            user.setEnabled(true);
-            keycloakAdmin.realm(realm).users().get(keycloakId).update(user);
+            guard.run(KeycloakAdminGuard.Operation.UPDATE_USER, () -> keycloakAdmin.realm(realm).users().get(keycloakId).update(user));
 
+        } catch (KeycloakUnavailableException ex) {
+            throw ex;
         } catch (Exception ex) {
             System.err.println("Keycloak update failed: " + ex.getMessage());
             throw new RuntimeException("Keycloak update failed", ex);
@@ -108,16 +230,30 @@ public class KeycloakService {
 
 
     public void disableUser(String keycloakId) {
-        UsersResource usersResource = keycloakAdmin.realm(realm).users();
-        UserRepresentation user = usersResource.get(keycloakId).toRepresentation();
-        user.setEnabled(false);
-        usersResource.get(keycloakId).update(user);
+        guard.run(KeycloakAdminGuard.Operation.DISABLE_USER, () -> setEnabled(keycloakId, false));
     }
 
     public void enableUser(String keycloakId) {
+        guard.run(KeycloakAdminGuard.Operation.ENABLE_USER, () -> setEnabled(keycloakId, true));
+    }
+
+    // Same calls through the BULK bulkhead, for CustomerBulkService's fan-out
+    public void bulkDisableUser(String keycloakId) {
+        guard.run(KeycloakAdminGuard.Operation.BULK, () -> setEnabled(keycloakId, false));
+    }
+
+    public void bulkEnableUser(String keycloakId) {
+        guard.run(KeycloakAdminGuard.Operation.BULK, () -> setEnabled(keycloakId, true));
+    }
+
+    public boolean bulkDeleteUser(String keycloakId) {
+        return deleteUser(KeycloakAdminGuard.Operation.BULK, keycloakId);
+    }
+
+    private void setEnabled(String keycloakId, boolean enabled) {
         UsersResource usersResource = keycloakAdmin.realm(realm).users();
         UserRepresentation user = usersResource.get(keycloakId).toRepresentation();
-        user.setEnabled(true);
+        user.setEnabled(enabled);
         usersResource.get(keycloakId).update(user);
     }
 
@@ -0,0 +1,76 @@
+package com.simpleshop.service;
+
+import com.simpleshop.util.StripedTokenBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Limits password attempts before they reach Keycloak, where each one costs a
+// password hash. One bucket per client IP (stuffing from a few hosts) and one per
+// email (a single account attacked from many hosts); an attempt needs a token from both.
+// Behind a proxy, set server.forward-headers-strategy so the remote address is the client's.
+@Service
+public class LoginThrottle {
+
+    private final boolean enabled;
+    private final StripedTokenBucket byIp;
+    private final StripedTokenBucket byEmail;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejectedByIp = new LongAdder();
+    private final LongAdder rejectedByEmail = new LongAdder();
+
+    public LoginThrottle(@Value("${auth.login.rate-limit.enabled:true}") boolean enabled,
+                         @Value("${auth.login.rate-limit.max-entries:65536}") int maxEntries,
+                         @Value("${auth.login.rate-limit.ip.capacity:20}") double ipCapacity,
+                         @Value("${auth.login.rate-limit.ip.refill-per-minute:60}") double ipRefillPerMinute,
+                         @Value("${auth.login.rate-limit.email.capacity:5}") double emailCapacity,
+                         @Value("${auth.login.rate-limit.email.refill-per-minute:5}") double emailRefillPerMinute) {
+        this.enabled = enabled;
+        this.byIp = new StripedTokenBucket(maxEntries, ipCapacity, ipRefillPerMinute / 60);
+        this.byEmail = new StripedTokenBucket(maxEntries, emailCapacity, emailRefillPerMinute / 60);
+    }
+
+    // 0 when the attempt may go ahead, otherwise the Retry-After in seconds
+    public long tryAcquire(String email, String clientIp) {
+        if (!enabled) return 0;
+
+        long wait = byIp.tryAcquire(clientIp);
+        if (wait > 0) {
+            rejectedByIp.increment();
+            return toRetryAfterSeconds(wait);
+        }
+
+        wait = byEmail.tryAcquire(email.trim().toLowerCase(Locale.ROOT));
+        if (wait > 0) {
+            // The attempt is not made, so it should not count against the IP
+            byIp.refund(clientIp);
+            rejectedByEmail.increment();
+            return toRetryAfterSeconds(wait);
+        }
+
+        allowed.increment();
+        return 0;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("enabled", enabled);
+        out.put("allowed", allowed.sum());
+        out.put("rejectedByIp", rejectedByIp.sum());
+        out.put("rejectedByEmail", rejectedByEmail.sum());
+        out.put("trackedIps", byIp.trackedKeys());
+        out.put("trackedEmails", byEmail.trackedKeys());
+        out.put("maxKeys", byIp.maxKeys());
+        return out;
+    }
+
+    private static long toRetryAfterSeconds(long nanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(nanos + 999_999_999));
+    }
+}
@@ -0,0 +1,125 @@
+package com.simpleshop.service;
+
+import com.simpleshop.model.Permission;
+import com.simpleshop.model.RoleDefinition;
+import com.simpleshop.repository.RoleDefinitionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Holds the current PermissionTable. Role definitions are read from the database at startup
+// (seeded with USER and ADMIN when the table is empty) and polled every
+// security.permissions.reload-interval-seconds; a new table is swapped in only when the
+// content changed. Readers just dereference a volatile field.
+@Component
+public class PermissionRegistry {
+
+    private static final String LOAD_SQL = """
+            SELECT d.role_name, p.permission
+              FROM role_definitions d
+              LEFT JOIN role_definition_permissions p ON p.role_name = d.role_name
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RoleDefinitionRepository roleDefinitionRepo;
+    private final long reloadIntervalSeconds;
+
+    private volatile PermissionTable table = PermissionTable.compile(defaults(), 0);
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private ScheduledExecutorService poller;
+
+    public PermissionRegistry(JdbcTemplate jdbcTemplate,
+                              RoleDefinitionRepository roleDefinitionRepo,
+                              @Value("${security.permissions.reload-interval-seconds:30}") long reloadIntervalSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.roleDefinitionRepo = roleDefinitionRepo;
+        this.reloadIntervalSeconds = reloadIntervalSeconds;
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            if (roleDefinitionRepo.count() == 0) {
+                defaults().forEach((role, permissions) ->
+                        roleDefinitionRepo.save(new RoleDefinition(role, new HashSet<>(permissions))));
+            }
+            reload();
+        } catch (Exception e) {
+            System.err.println("Role definitions not loaded, using built-in defaults: " + e.getMessage());
+        }
+
+        if (reloadIntervalSeconds > 0) {
+            poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread t = new Thread(runnable, "permission-reload");
+                t.setDaemon(true);
+                return t;
+            });
+            poller.scheduleWithFixedDelay(this::reloadQuietly, reloadIntervalSeconds, reloadIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (poller != null) poller.shutdownNow();
+    }
+
+    public PermissionTable current() {
+        return table;
+    }
+
+    // Returns true when a changed table was swapped in. A lock rather than synchronized:
+    // the query must not pin a carrier thread when called from a virtual thread.
+    public boolean reload() {
+        reloadLock.lock();
+        try {
+            return reloadLocked();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private boolean reloadLocked() {
+        Map<String, Set<Permission>> definitions = new HashMap<>();
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            Set<Permission> permissions = definitions.computeIfAbsent(rs.getString("role_name"), r -> EnumSet.noneOf(Permission.class));
+            String permission = rs.getString("permission");
+            if (permission == null) return;
+            try {
+                permissions.add(Permission.valueOf(permission));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Ignoring unknown permission " + permission + " on role " + rs.getString("role_name"));
+            }
+        });
+
+        PermissionTable current = table;
+        if (current.sameContentAs(definitions)) return false;
+
+        table = PermissionTable.compile(definitions, current.version() + 1);
+        System.out.println("Role definitions reloaded: " + table.describe());
+        return true;
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (Exception e) {
+            System.err.println("Role definition reload failed: " + e.getMessage());
+        }
+    }
+
+    // Matches the behaviour before role definitions existed: ADMIN may do everything
+    private static Map<String, Set<Permission>> defaults() {
+        return Map.of(
+                "USER", EnumSet.noneOf(Permission.class),
+                "ADMIN", EnumSet.allOf(Permission.class)
+        );
+    }
+}
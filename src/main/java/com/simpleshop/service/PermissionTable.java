@@ -0,0 +1,62 @@
+package com.simpleshop.service;
+
+import com.simpleshop.model.Permission;
+
+import java.util.*;
+
+// Immutable snapshot of the role definitions: upper-cased role name -> permission bitset.
+// Built once per (re)load; lookups never lock. version changes whenever the content does.
+public final class PermissionTable {
+
+    private final Map<String, Long> masks;
+    private final long version;
+
+    private PermissionTable(Map<String, Long> masks, long version) {
+        this.masks = masks;
+        this.version = version;
+    }
+
+    static PermissionTable compile(Map<String, ? extends Collection<Permission>> definitions, long version) {
+        Map<String, Long> masks = new HashMap<>();
+        definitions.forEach((role, permissions) -> {
+            long mask = 0;
+            for (Permission p : permissions) mask |= p.mask();
+            masks.merge(role.toUpperCase(Locale.ROOT), mask, (a, b) -> a | b);
+        });
+        return new PermissionTable(Map.copyOf(masks), version);
+    }
+
+    // Union of the grants of every known role; unknown names grant nothing
+    public long grantsOf(Collection<String> roleNames) {
+        long grants = 0;
+        for (String role : roleNames) {
+            Long mask = masks.get(role.toUpperCase(Locale.ROOT));
+            if (mask != null) grants |= mask;
+        }
+        return grants;
+    }
+
+    public static boolean allows(long grants, Permission permission) {
+        return (grants & permission.mask()) != 0;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    boolean sameContentAs(Map<String, ? extends Collection<Permission>> definitions) {
+        return masks.equals(compile(definitions, version).masks);
+    }
+
+    public Map<String, Set<Permission>> describe() {
+        Map<String, Set<Permission>> out = new TreeMap<>();
+        masks.forEach((role, mask) -> {
+            Set<Permission> permissions = EnumSet.noneOf(Permission.class);
+            for (Permission p : Permission.values()) {
+                if (allows(mask, p)) permissions.add(p);
+            }
+            out.put(role, permissions);
+        });
+        return out;
+    }
+}
@@ -0,0 +1,126 @@
+package com.simpleshop.service;
+
+import com.simpleshop.event.CustomerChangedEvent;
+import com.simpleshop.model.ProvisioningStatus;
+import com.simpleshop.model.ProvisioningTask;
+import com.simpleshop.repository.ProvisioningTaskRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+public class ProvisioningOutbox {
+
+    public record ClaimedTask(long id, String customerId, int attempts) {
+    }
+
+    // Picks due rows (and rows whose worker died mid-flight) without blocking other nodes
+    private static final String CLAIM_SQL = """
+            UPDATE provisioning_outbox
+               SET status = 'IN_PROGRESS', attempts = attempts + 1, updated_at = now()
+             WHERE id IN (SELECT id FROM provisioning_outbox
+                           WHERE (status = 'PENDING' AND next_attempt_at <= now())
+                              OR (status = 'IN_PROGRESS' AND updated_at < now() - (? * interval '1 second'))
+                           ORDER BY id
+                           LIMIT ?
+                           FOR UPDATE SKIP LOCKED)
+            RETURNING id, customer_id, attempts
+            """;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final ProvisioningTaskRepository taskRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher events;
+
+    public ProvisioningOutbox(ProvisioningTaskRepository taskRepo, JdbcTemplate jdbcTemplate, ApplicationEventPublisher events) {
+        this.taskRepo = taskRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.events = events;
+    }
+
+    // Joins the caller's transaction so the customer and its task commit together.
+    // Returns the task's status token; customer ids are sequential, so they cannot key a public lookup.
+    @Transactional
+    public String enqueue(String customerId) {
+        Instant now = Instant.now();
+        byte[] token = new byte[32];
+        RANDOM.nextBytes(token);
+        ProvisioningTask task = new ProvisioningTask();
+        task.setCustomerId(customerId);
+        task.setStatusToken(Base64.getUrlEncoder().withoutPadding().encodeToString(token));
+        task.setStatus(ProvisioningStatus.PENDING);
+        task.setAttempts(0);
+        task.setNextAttemptAt(now);
+        task.setCreatedAt(now);
+        task.setUpdatedAt(now);
+        taskRepo.save(task);
+        return task.getStatusToken();
+    }
+
+    public List<ClaimedTask> claim(int limit, long leaseSeconds) {
+        return jdbcTemplate.query(CLAIM_SQL,
+                (rs, rowNum) -> new ClaimedTask(rs.getLong("id"), rs.getString("customer_id"), rs.getInt("attempts")),
+                leaseSeconds, limit);
+    }
+
+    // Keeps the lease of tasks this node is still working on, so a slow Keycloak call
+    // is not mistaken for a dead worker and handed to another node
+    public void renew(Collection<ClaimedTask> tasks) {
+        if (tasks.isEmpty()) return;
+        jdbcTemplate.batchUpdate("UPDATE provisioning_outbox SET updated_at = now() WHERE id = ? AND status = 'IN_PROGRESS' AND attempts = ?",
+                tasks.stream().map(t -> new Object[]{t.id(), t.attempts()}).toList());
+    }
+
+    // Customer gets its Keycloak id and the task is closed in one short transaction.
+    // The password was only kept for provisioning; Keycloak owns the credential now.
+    // The attempt number fences the lease: if the task was reclaimed since, nothing is
+    // written and false is returned.
+    @Transactional
+    public boolean complete(ClaimedTask task, String keycloakId) {
+        int closed = jdbcTemplate.update("UPDATE provisioning_outbox SET status = 'DONE', last_error = NULL, updated_at = now() WHERE id = ? AND status = 'IN_PROGRESS' AND attempts = ?",
+                task.id(), task.attempts());
+        if (closed == 0) return false;
+
+        jdbcTemplate.update("UPDATE customers SET keycloak_id = ?, password = NULL, version = version + 1 WHERE customer_id = ?",
+                keycloakId, task.customerId());
+        events.publishEvent(new CustomerChangedEvent(task.customerId()));
+        return true;
+    }
+
+    public boolean retryAt(ClaimedTask task, Instant nextAttemptAt, String error) {
+        return jdbcTemplate.update("UPDATE provisioning_outbox SET status = 'PENDING', next_attempt_at = ?, last_error = ?, updated_at = now() WHERE id = ? AND status = 'IN_PROGRESS' AND attempts = ?",
+                Timestamp.from(nextAttemptAt), truncate(error), task.id(), task.attempts()) == 1;
+    }
+
+    public boolean fail(ClaimedTask task, String error) {
+        return jdbcTemplate.update("UPDATE provisioning_outbox SET status = 'FAILED', last_error = ?, updated_at = now() WHERE id = ? AND status = 'IN_PROGRESS' AND attempts = ?",
+                truncate(error), task.id(), task.attempts()) == 1;
+    }
+
+    // A customer with this username is still waiting for (or in the middle of) provisioning
+    public boolean hasOpenTaskForUsername(String userName) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                        SELECT EXISTS (SELECT 1 FROM provisioning_outbox o JOIN customers c ON c.customer_id = o.customer_id
+                                        WHERE lower(c.username) = lower(?) AND o.status IN ('PENDING', 'IN_PROGRESS'))
+                        """, Boolean.class, userName));
+    }
+
+    public Optional<ProvisioningTask> findByStatusToken(String statusToken) {
+        return taskRepo.findByStatusToken(statusToken);
+    }
+
+    private static String truncate(String error) {
+        if (error == null) return null;
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
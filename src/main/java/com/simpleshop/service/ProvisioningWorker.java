@@ -0,0 +1,181 @@
+package com.simpleshop.service;
+
+import com.simpleshop.model.Customer;
+import com.simpleshop.repository.CustomerRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+// Drains provisioning_outbox into Keycloak when customer.provisioning.async=true.
+// One poller claims due tasks; a bounded pool makes the Keycloak calls, so a slow
+// IdP never holds a DB connection for the duration of a round trip.
+@Component
+public class ProvisioningWorker {
+
+    private final ProvisioningOutbox outbox;
+    private final CustomerRepository customerRepo;
+    private final KeycloakService keycloakService;
+
+    private final boolean enabled;
+    private final int workers;
+    private final long pollIntervalMillis;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final Set<ProvisioningOutbox.ClaimedTask> inFlight = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService poller;
+    private ThreadPoolExecutor pool;
+
+    public ProvisioningWorker(ProvisioningOutbox outbox,
+                              CustomerRepository customerRepo,
+                              KeycloakService keycloakService,
+                              @Value("${customer.provisioning.async:false}") boolean enabled,
+                              @Value("${customer.provisioning.workers:4}") int workers,
+                              @Value("${customer.provisioning.poll-interval-ms:500}") long pollIntervalMillis,
+                              @Value("${customer.provisioning.lease-seconds:120}") long leaseSeconds,
+                              @Value("${customer.provisioning.max-attempts:8}") int maxAttempts,
+                              @Value("${customer.provisioning.base-backoff-ms:1000}") long baseBackoffMillis,
+                              @Value("${customer.provisioning.max-backoff-ms:300000}") long maxBackoffMillis) {
+        this.outbox = outbox;
+        this.customerRepo = customerRepo;
+        this.keycloakService = keycloakService;
+        this.enabled = enabled;
+        this.workers = workers;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+
+        pool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 2), namedThreads("provisioning-worker-"));
+        poller = Executors.newSingleThreadScheduledExecutor(namedThreads("provisioning-poller-"));
+        poller.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        // Well inside the lease, so a task is only reclaimed when its worker is really gone
+        long renewMillis = Math.max(1000, leaseSeconds * 1000 / 3);
+        poller.scheduleWithFixedDelay(this::renewLeases, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (poller != null) poller.shutdownNow();
+        if (pool != null) pool.shutdown();
+    }
+
+    private void poll() {
+        try {
+            // Only claim what the pool can take right now; the rest stays PENDING for other nodes
+            int capacity = pool.getQueue().remainingCapacity();
+            if (capacity == 0) return;
+
+            List<ProvisioningOutbox.ClaimedTask> tasks = outbox.claim(capacity, leaseSeconds);
+            for (ProvisioningOutbox.ClaimedTask task : tasks) {
+                // Renewed from the moment it is claimed, including while it waits in the queue
+                inFlight.add(task);
+                try {
+                    pool.execute(() -> process(task));
+                } catch (RejectedExecutionException e) {
+                    // Shutting down: the lease runs out and another node picks it up
+                    inFlight.remove(task);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Provisioning poll failed: " + e.getMessage());
+        }
+    }
+
+    // The task is in inFlight (claimed by poll) until this returns
+    void process(ProvisioningOutbox.ClaimedTask task) {
+        try {
+            Customer customer = customerRepo.findByCustomerId(task.customerId()).orElse(null);
+            if (customer == null) {
+                outbox.fail(task, "Customer no longer exists");
+                return;
+            }
+            if (customer.getKeycloakId() != null) {
+                outbox.complete(task, customer.getKeycloakId());
+                return;
+            }
+
+            // A previous attempt may have created the user and died before recording it.
+            // Only a user tagged with this customer's id is ours; anyone else holding the
+            // username is left alone.
+            String kcId = keycloakService.findUserIdByUsername(customer.getUserName());
+            if (kcId != null) {
+                if (!keycloakService.isCreatedFor(kcId, customer.getCustomerId())) {
+                    outbox.fail(task, "Keycloak username already taken by another user");
+                    return;
+                }
+            } else {
+                kcId = keycloakService.createKeycloakUser(
+                        customer.getCustomerId(),
+                        customer.getUserName(),
+                        customer.getEmail(),
+                        customer.getPassword(),
+                        "USER",
+                        customer.isActive(),
+                        customer.getFirstName(),
+                        customer.getLastName()
+                );
+            }
+
+            if (kcId == null) {
+                retryOrFail(task, "Keycloak user creation failed");
+                return;
+            }
+
+            if (!outbox.complete(task, kcId)) {
+                System.err.println("Provisioning task " + task.id() + " was reclaimed before it completed; result dropped");
+            }
+
+        } catch (Exception e) {
+            retryOrFail(task, e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            inFlight.remove(task);
+        }
+    }
+
+    private void renewLeases() {
+        try {
+            outbox.renew(List.copyOf(inFlight));
+        } catch (Exception e) {
+            System.err.println("Provisioning lease renewal failed: " + e.getMessage());
+        }
+    }
+
+    private void retryOrFail(ProvisioningOutbox.ClaimedTask task, String error) {
+        if (task.attempts() >= maxAttempts) {
+            outbox.fail(task, error);
+            return;
+        }
+
+        // Exponential backoff with +/-20% jitter so retries from a burst do not line up
+        long backoff = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(task.attempts() - 1, 20));
+        long jitter = (long) (backoff * 0.2 * (ThreadLocalRandom.current().nextDouble() * 2 - 1));
+        outbox.retryAt(task, Instant.now().plusMillis(backoff + jitter), error);
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        ThreadFactory delegate = Executors.defaultThreadFactory();
+        return runnable -> {
+            Thread t = delegate.newThread(runnable);
+            t.setName(prefix + t.threadId());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.simpleshop.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+// Original scheme: 7 random hex digits per day (2^28 values), kept for existing deployments
+@Component
+@ConditionalOnProperty(name = "customer.id.generator", havingValue = "random")
+public class RandomCustomerIdGenerator implements CustomerIdGenerator {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("ddMMyy");
+
+    @Override
+    public String next() {
+        String uuid = UUID.randomUUID().toString().replace("-", "");
+        String lastDigits = uuid.substring(uuid.length() - 7).toUpperCase();
+
+        String prefix = "CUS_" + LocalDate.now().format(DAY_FORMAT);
+        return prefix + "_" + lastDigits;
+    }
+}
@@ -0,0 +1,114 @@
+package com.simpleshop.service;
+
+import com.simpleshop.util.BloomFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process deny list of logged-out sessions (sid) and blocked users (sub).
+// Tokens issued before a logout or block stay cryptographically valid until exp,
+// so entries only need to live for one access-token lifespan.
+// Lookups hit the Bloom filter first; the map is consulted only on a possible match.
+@Service
+public class RevocationService {
+
+    private static final String SESSION_PREFIX = "sid:";
+    private static final String SUBJECT_PREFIX = "sub:";
+
+    private final Map<String, Long> entries = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepAt = new AtomicLong();
+    private final long ttlMillis;
+    private final long sweepIntervalMillis;
+    private final int bloomExpectedEntries;
+    private final double bloomFalsePositiveRate;
+
+    private volatile BloomFilter bloom;
+
+    public RevocationService(@Value("${auth.revocation.access-token-lifespan-seconds:900}") long ttlSeconds,
+                             @Value("${auth.revocation.sweep-interval-seconds:60}") long sweepIntervalSeconds,
+                             @Value("${auth.revocation.bloom.expected-entries:100000}") int bloomExpectedEntries,
+                             @Value("${auth.revocation.bloom.false-positive-rate:0.01}") double bloomFalsePositiveRate) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.sweepIntervalMillis = sweepIntervalSeconds * 1000;
+        this.bloomExpectedEntries = bloomExpectedEntries;
+        this.bloomFalsePositiveRate = bloomFalsePositiveRate;
+        this.bloom = new BloomFilter(bloomExpectedEntries, bloomFalsePositiveRate);
+    }
+
+    public void revokeSession(String sid) {
+        if (sid != null && !sid.isBlank()) add(SESSION_PREFIX + sid);
+    }
+
+    // True if the subject was not denied before this call
+    public boolean blockSubject(String keycloakId) {
+        if (keycloakId == null || keycloakId.isBlank()) return false;
+        return add(SUBJECT_PREFIX + keycloakId);
+    }
+
+    public void unblockSubject(String keycloakId) {
+        if (keycloakId == null) return;
+        if (entries.remove(SUBJECT_PREFIX + keycloakId) != null) {
+            rebuildBloom();
+        }
+    }
+
+    // One bloom rebuild for the whole batch
+    public void unblockSubjects(Collection<String> keycloakIds) {
+        boolean removed = false;
+        for (String keycloakId : keycloakIds) {
+            if (keycloakId != null && entries.remove(SUBJECT_PREFIX + keycloakId) != null) removed = true;
+        }
+        if (removed) rebuildBloom();
+    }
+
+    public boolean isRevoked(String sid, String keycloakId) {
+        long now = System.currentTimeMillis();
+        return (sid != null && isDenied(SESSION_PREFIX + sid, now))
+                || (keycloakId != null && isDenied(SUBJECT_PREFIX + keycloakId, now));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private boolean add(String key) {
+        long now = System.currentTimeMillis();
+        Long previous = entries.put(key, now + ttlMillis);
+        bloom.add(key);
+        sweepIfDue(now);
+        return previous == null || previous <= now;
+    }
+
+    private boolean isDenied(String key, long now) {
+        if (!bloom.mightContain(key)) return false;
+
+        Long expiresAt = entries.get(key);
+        if (expiresAt == null) return false;
+        if (expiresAt > now) return true;
+
+        sweepIfDue(now);
+        return false;
+    }
+
+    // Drops expired entries and rebuilds the filter so it does not fill up over time.
+    // Only one thread sweeps per interval.
+    private void sweepIfDue(long now) {
+        long due = nextSweepAt.get();
+        if (now < due || !nextSweepAt.compareAndSet(due, now + sweepIntervalMillis)) return;
+
+        boolean removed = entries.values().removeIf(expiresAt -> expiresAt <= now);
+        if (removed) rebuildBloom();
+    }
+
+    private synchronized void rebuildBloom() {
+        BloomFilter fresh = new BloomFilter(Math.max(bloomExpectedEntries, entries.size() * 2), bloomFalsePositiveRate);
+        entries.keySet().forEach(fresh::add);
+        bloom = fresh;
+        // Keys added while copying may have gone to the old filter only
+        entries.keySet().forEach(fresh::add);
+    }
+}
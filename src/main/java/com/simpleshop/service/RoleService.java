@@ -1,12 +1,16 @@
 package com.simpleshop.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.simpleshop.model.Customer;
+import com.simpleshop.model.Permission;
 import com.simpleshop.model.Role;
 import com.simpleshop.repository.CustomerRepository;
 import com.simpleshop.repository.RoleRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
 import org.springframework.security.oauth2.jwt.Jwt;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -14,9 +18,21 @@ import java.util.Map;
 public class RoleService {
 
     private final RoleRepository roleRepo;
+    private final PermissionRegistry permissionRegistry;
 
-    public RoleService(RoleRepository roleRepo, CustomerRepository customerRepo) {
+    // Grants of a decoded token, computed once per Jwt instance (see CachingJwtDecoder)
+    // and recomputed when the permission table has been reloaded since
+    private record Grants(long tableVersion, long mask) {
+    }
+
+    private final Cache<Jwt, Grants> tokenGrants = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(10_000)
+            .build();
+
+    public RoleService(RoleRepository roleRepo, CustomerRepository customerRepo, PermissionRegistry permissionRegistry) {
         this.roleRepo = roleRepo;
+        this.permissionRegistry = permissionRegistry;
     }
 
     // Assign default USER role when customer is created
@@ -28,25 +44,49 @@ public class RoleService {
         roleRepo.save(role);
     }
 
+    // Permission checks: one bit test against the principal's compiled grants
+    public boolean hasPermission(Jwt principal, Permission permission) {
+        return PermissionTable.allows(grantsOf(principal), permission);
+    }
 
+    public boolean hasPermission(String customerId, Permission permission) {
+        return PermissionTable.allows(permissionRegistry.current().grantsOf(roleRepo.findRoleNamesByCustomerId(customerId)), permission);
+    }
+
+    public boolean hasPermissionByKeycloakId(String keycloakId, Permission permission) {
+        return PermissionTable.allows(permissionRegistry.current().grantsOf(roleRepo.findRoleNamesByKeycloakId(keycloakId)), permission);
+    }
+
+    public long grantsOf(Jwt principal) {
+        PermissionTable table = permissionRegistry.current();
+        Grants grants = tokenGrants.getIfPresent(principal);
+        if (grants == null || grants.tableVersion() != table.version()) {
+            grants = new Grants(table.version(), table.grantsOf(realmRoles(principal)));
+            tokenGrants.put(principal, grants);
+        }
+        return grants.mask();
+    }
+
+    // Operational access (/api/admin/**)
     public boolean isAdmin(String customerId) {
-        return roleRepo.findByCustomer_CustomerId(customerId)
-                .map(role -> role.getRoleName().equalsIgnoreCase("ADMIN"))
-                .orElse(false);
+        return hasPermission(customerId, Permission.ADMIN_CONSOLE);
     }
 
     // Role check based on Keycloak token
     public boolean isAdmin(Jwt principal) {
+        return hasPermission(principal, Permission.ADMIN_CONSOLE);
+    }
 
-        Map<String, Object> realmAccess = principal.getClaimAsMap("realm_access");
+    @SuppressWarnings("unchecked")
+    private static Collection<String> realmRoles(Jwt principal) {
 
-        if (realmAccess == null) return false;
+        Map<String, Object> realmAccess = principal.getClaimAsMap("realm_access");
 
-        List<String> roles = (List<String>) realmAccess.get("roles");
+        if (realmAccess == null) return List.of();
 
-        if (roles == null) return false;
+        Object roles = realmAccess.get("roles");
 
-        return roles.contains("ADMIN");
+        return roles instanceof Collection<?> ? (Collection<String>) roles : List.of();
     }
 
     @Transactional
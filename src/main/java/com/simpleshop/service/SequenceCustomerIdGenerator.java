@@ -0,0 +1,120 @@
+package com.simpleshop.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+// CUS_ddMMyy_ + 10 Crockford base32 chars encoding (millis of day, sequence, node id).
+// Unique as long as every node has its own node id (0..1023): customer.id.node-id, or
+// without it one leased from the database (CustomerIdNodeLease). The same node never hands out the same (millis, sequence) pair twice, even if
+// the wall clock steps back or more than 4096 ids are asked for in one millisecond.
+// Lock-free (one CAS per id) and the only allocations are the char[] and the String.
+@Component
+@ConditionalOnProperty(name = "customer.id.generator", havingValue = "sequence", matchIfMissing = true)
+public class SequenceCustomerIdGenerator implements CustomerIdGenerator {
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int SUFFIX_LENGTH = 10;
+    private static final int PREFIX_LENGTH = "CUS_ddMMyy_".length();
+
+    private final int nodeId;
+    // null when the node id is configured
+    private final CustomerIdNodeLease lease;
+    private final Clock clock;
+    private final ZoneId zone;
+
+    // epochMillis << SEQUENCE_BITS | sequence of the last id handed out
+    private final AtomicLong state = new AtomicLong();
+    private volatile Day day;
+
+    private record Day(long startMillis, long endMillis, char[] prefix) {
+    }
+
+    @Autowired
+    public SequenceCustomerIdGenerator(@Value("${customer.id.node-id:-1}") int nodeId,
+                                       @Value("${customer.id.node-lease-seconds:60}") long leaseSeconds,
+                                       JdbcTemplate jdbcTemplate) {
+        this(nodeId >= 0 ? null : CustomerIdNodeLease.acquire(jdbcTemplate, MAX_NODE_ID, leaseSeconds),
+                nodeId, Clock.systemDefaultZone());
+    }
+
+    SequenceCustomerIdGenerator(int nodeId, Clock clock) {
+        this(null, nodeId, clock);
+    }
+
+    private SequenceCustomerIdGenerator(CustomerIdNodeLease lease, int nodeId, Clock clock) {
+        if (lease != null) nodeId = lease.nodeId();
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("customer.id.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.lease = lease;
+        this.clock = clock;
+        this.zone = clock.getZone();
+        this.day = dayOf(clock.millis());
+    }
+
+    @PreDestroy
+    public void releaseLease() {
+        if (lease != null) lease.release();
+    }
+
+    @Override
+    public String next() {
+        if (lease != null && !lease.isHeld()) {
+            throw new IllegalStateException("Customer id node lease " + nodeId + " is no longer held");
+        }
+        long next;
+        while (true) {
+            long prev = state.get();
+            long now = clock.millis();
+            // New millisecond: sequence restarts. Same millisecond, or clock behind: bump the
+            // sequence; an overflow carries into the millis part, borrowing the next millisecond.
+            next = now > (prev >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : prev + 1;
+            if (state.compareAndSet(prev, next)) break;
+        }
+        return format(next >>> SEQUENCE_BITS, next & SEQUENCE_MASK);
+    }
+
+    private String format(long millis, long sequence) {
+        Day d = day;
+        if (millis < d.startMillis || millis >= d.endMillis) {
+            d = dayOf(millis);
+            day = d;
+        }
+
+        // 27 bits millis-of-day (25h DST days included) | 12 bits sequence | 10 bits node = 49 bits
+        long value = ((millis - d.startMillis) << (SEQUENCE_BITS + NODE_BITS)) | (sequence << NODE_BITS) | nodeId;
+
+        char[] out = new char[PREFIX_LENGTH + SUFFIX_LENGTH];
+        System.arraycopy(d.prefix, 0, out, 0, PREFIX_LENGTH);
+        for (int i = out.length - 1; i >= PREFIX_LENGTH; i--) {
+            out[i] = CROCKFORD[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(out);
+    }
+
+    private Day dayOf(long millis) {
+        LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+        long start = date.atStartOfDay(zone).toInstant().toEpochMilli();
+        long end = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+
+        String prefix = String.format("CUS_%02d%02d%02d_", date.getDayOfMonth(), date.getMonthValue(), date.getYear() % 100);
+        return new Day(start, end, prefix.toCharArray());
+    }
+}
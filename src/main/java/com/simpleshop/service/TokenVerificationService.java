@@ -0,0 +1,158 @@
+package com.simpleshop.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.jwt.JWTParser;
+import com.nimbusds.jwt.SignedJWT;
+import com.simpleshop.config.JwksKeyCache;
+import com.simpleshop.util.TokenHash;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.stereotype.Service;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Backs /auth/verify. Signed access tokens are checked locally against the cached
+// realm keys; only opaque tokens, tokens signed by an unknown key, or an unreachable
+// JWKS endpoint fall back to Keycloak introspection, whose answers are cached until exp.
+@Service
+public class TokenVerificationService {
+
+    private static final Map<String, Object> INACTIVE = Map.of("active", false);
+
+    private final JwtDecoder jwtDecoder;
+    private final JwksKeyCache jwksKeyCache;
+    private final KeycloakAuthService keycloakAuthService;
+    private final RevocationService revocationService;
+    private final boolean localMode;
+    private final Cache<String, Map<String, Object>> introspectionCache;
+
+    public TokenVerificationService(JwtDecoder jwtDecoder,
+                                    JwksKeyCache jwksKeyCache,
+                                    KeycloakAuthService keycloakAuthService,
+                                    RevocationService revocationService,
+                                    @Value("${auth.verify.mode:local}") String mode,
+                                    @Value("${auth.verify.introspection-cache.max-size:10000}") long maxSize,
+                                    @Value("${auth.verify.introspection-cache.max-ttl-seconds:300}") long maxTtlSeconds,
+                                    @Value("${auth.verify.introspection-cache.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this.jwtDecoder = jwtDecoder;
+        this.jwksKeyCache = jwksKeyCache;
+        this.keycloakAuthService = keycloakAuthService;
+        this.revocationService = revocationService;
+        this.localMode = !"introspect".equalsIgnoreCase(mode);
+        this.introspectionCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry(Duration.ofSeconds(maxTtlSeconds), Duration.ofSeconds(negativeTtlSeconds)))
+                .build();
+    }
+
+    // Same shape as an introspection response: "active" plus the token claims.
+    // Completes immediately for locally verified tokens; completes exceptionally
+    // (KeycloakAuthException) only when Keycloak had to be asked and could not answer.
+    public CompletableFuture<Map<String, Object>> verify(String token) {
+        CompletableFuture<Map<String, Object>> result = localMode ? verifyLocally(token) : introspect(token);
+        return result.thenApply(this::unlessRevoked);
+    }
+
+    // Logged-out sessions and blocked users, even if the signature still checks out
+    private Map<String, Object> unlessRevoked(Map<String, Object> result) {
+        if (Boolean.TRUE.equals(result.get("active"))) {
+            Object sid = result.containsKey("sid") ? result.get("sid") : result.get("session_state");
+            Object sub = result.get("sub");
+            if (revocationService.isRevoked(sid != null ? sid.toString() : null, sub != null ? sub.toString() : null)) {
+                return INACTIVE;
+            }
+        }
+        return result;
+    }
+
+    private CompletableFuture<Map<String, Object>> verifyLocally(String token) {
+        JWT parsed;
+        try {
+            parsed = JWTParser.parse(token);
+        } catch (ParseException e) {
+            // Opaque token: only Keycloak can tell
+            return introspect(token);
+        }
+
+        try {
+            String kid = parsed instanceof SignedJWT ? ((SignedJWT) parsed).getHeader().getKeyID() : null;
+            if (kid == null || !jwksKeyCache.knowsKey(kid)) {
+                return introspect(token);
+            }
+        } catch (KeySourceException e) {
+            return introspect(token);
+        }
+
+        try {
+            Jwt jwt = jwtDecoder.decode(token);
+            Map<String, Object> result = new HashMap<>(jwt.getClaims());
+            result.put("active", true);
+            return CompletableFuture.completedFuture(result);
+
+        } catch (BadJwtException e) {
+            // Bad signature, expired, wrong issuer...
+            return CompletableFuture.completedFuture(INACTIVE);
+        } catch (JwtException e) {
+            // Key set could not be fetched; let Keycloak decide
+            return introspect(token);
+        }
+    }
+
+    private CompletableFuture<Map<String, Object>> introspect(String token) {
+        String key = TokenHash.sha256(token);
+
+        Map<String, Object> cached = introspectionCache.getIfPresent(key);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
+        return keycloakAuthService.introspectToken(token).thenApply(response -> {
+            Map<String, Object> result = response.active() ? response.claims() : INACTIVE;
+            introspectionCache.put(key, result);
+            return result;
+        });
+    }
+
+    // Active results live until the token's exp (capped); inactive ones only briefly
+    private static final class UntilTokenExpiry implements Expiry<String, Map<String, Object>> {
+
+        private final long maxTtlNanos;
+        private final long negativeTtlNanos;
+
+        UntilTokenExpiry(Duration maxTtl, Duration negativeTtl) {
+            this.maxTtlNanos = maxTtl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Map<String, Object> value, long currentTime) {
+            if (!Boolean.TRUE.equals(value.get("active"))) return negativeTtlNanos;
+
+            Object exp = value.get("exp");
+            if (!(exp instanceof Number)) return negativeTtlNanos;
+
+            long remainingMillis = ((Number) exp).longValue() * 1000 - System.currentTimeMillis();
+            if (remainingMillis <= 0) return 0;
+            return Math.min(Duration.ofMillis(remainingMillis).toNanos(), maxTtlNanos);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Map<String, Object> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Map<String, Object> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
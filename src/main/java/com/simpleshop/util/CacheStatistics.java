@@ -0,0 +1,27 @@
+package com.simpleshop.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Caffeine stats in the shape returned by the admin stats endpoints
+public final class CacheStatistics {
+
+    private CacheStatistics() {
+    }
+
+    public static Map<String, Object> describe(Cache<?, ?> cache) {
+        CacheStats s = cache.stats();
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("size", cache.estimatedSize());
+        out.put("hits", s.hitCount());
+        out.put("misses", s.missCount());
+        out.put("hitRate", s.hitRate());
+        out.put("loads", s.loadCount());
+        out.put("loadFailures", s.loadFailureCount());
+        out.put("evictions", s.evictionCount());
+        return out;
+    }
+}
@@ -0,0 +1,144 @@
+package com.simpleshop.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Count-based circuit breaker. CLOSED: outcomes of the last windowSize calls are kept;
+// once at least minimumCalls are in and the failure rate reaches the threshold it OPENs.
+// OPEN: every call is refused until openMillis have passed. HALF_OPEN: up to
+// probeCalls trial calls go through; if they all succeed it CLOSEs, the first failure
+// OPENs it again. Results of calls admitted before the last transition are ignored.
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public record Transition(String name, State from, State to, double failureRate) {
+    }
+
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int probeCalls;
+    private final Consumer<Transition> listener;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private final boolean[] window;
+    private int windowNext;
+    private int windowCalls;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openMillis, int probeCalls, Consumer<Transition> listener) {
+        this.name = name;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openMillis * 1_000_000;
+        this.probeCalls = Math.max(1, probeCalls);
+        this.listener = listener;
+    }
+
+    // A permit for one call (pass it to onResult), or -1 when the call must not be made
+    public long tryAcquire() {
+        Transition transition = null;
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < openNanos) return -1;
+                transition = moveTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesStarted >= probeCalls) return -1;
+                probesStarted++;
+            }
+            return generation;
+        } finally {
+            lock.unlock();
+            if (transition != null) listener.accept(transition);
+        }
+    }
+
+    public void onResult(long permit, boolean success) {
+        Transition transition = null;
+        lock.lock();
+        try {
+            if (permit != generation) return;
+
+            if (state == State.HALF_OPEN) {
+                if (!success) {
+                    transition = moveTo(State.OPEN);
+                } else if (++probesSucceeded >= probeCalls) {
+                    transition = moveTo(State.CLOSED);
+                }
+                return;
+            }
+
+            if (windowCalls == window.length) {
+                if (window[windowNext]) windowFailures--;
+            } else {
+                windowCalls++;
+            }
+            window[windowNext] = !success;
+            if (!success) windowFailures++;
+            windowNext = (windowNext + 1) % window.length;
+
+            if (windowCalls >= minimumCalls && failureRate() >= failureRateThreshold) {
+                transition = moveTo(State.OPEN);
+            }
+        } finally {
+            lock.unlock();
+            if (transition != null) listener.accept(transition);
+        }
+    }
+
+    // Gives back a permit whose call ended without a result (an Error, say), so a
+    // HALF_OPEN probe slot is not lost and the breaker cannot get stuck there
+    public void release(long permit) {
+        lock.lock();
+        try {
+            if (permit == generation && state == State.HALF_OPEN && probesStarted > probesSucceeded) probesStarted--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State state() {
+        lock.lock();
+        try {
+            // An expired OPEN is reported as what the next call will see
+            return state == State.OPEN && System.nanoTime() - openedAt >= openNanos ? State.HALF_OPEN : state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double failureRate() {
+        return windowCalls == 0 ? 0 : (double) windowFailures / windowCalls;
+    }
+
+    private Transition moveTo(State next) {
+        Transition transition = new Transition(name, state, next, failureRate());
+        state = next;
+        generation++;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        if (next == State.OPEN) openedAt = System.nanoTime();
+        if (next == State.CLOSED) {
+            windowNext = 0;
+            windowCalls = 0;
+            windowFailures = 0;
+        }
+        return transition;
+    }
+}
@@ -0,0 +1,40 @@
+package com.simpleshop.util;
+
+// Strong ETags derived from an entity version: "v<version>"
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String of(long version) {
+        return "\"v" + version + "\"";
+    }
+
+    // If-None-Match: "*" or a list of (possibly weak) tags; weak comparison per RFC 9110
+    public static boolean noneMatchHits(String ifNoneMatch, long version) {
+        if (ifNoneMatch == null) return false;
+        String current = of(version);
+        for (String tag : ifNoneMatch.split(",")) {
+            String t = tag.trim();
+            if (t.startsWith("W/")) t = t.substring(2);
+            if (t.equals("*") || t.equals(current)) return true;
+        }
+        return false;
+    }
+
+    // If-Match: a single strong tag -> expected version, null when the header is absent or "*".
+    // Anything else that does not parse can never match.
+    public static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null) return null;
+        String t = ifMatch.trim();
+        if (t.equals("*")) return null;
+        if (t.length() > 3 && t.startsWith("\"v") && t.endsWith("\"")) {
+            try {
+                return Long.parseLong(t.substring(2, t.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // fall through
+            }
+        }
+        return -1L;
+    }
+}
@@ -0,0 +1,110 @@
+package com.simpleshop.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Concurrency limit that follows latency (the gradient algorithm): a short-term
+// average RTT is compared with a long-term baseline; when requests start queueing
+// somewhere downstream the short average rises, the gradient drops below 1 and the
+// limit shrinks until latency is back at the baseline. A headroom of sqrt(limit)
+// lets the limit grow again while latency is flat.
+// Low-priority requests only get a share of the limit, so they are shed first.
+public final class GradientConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 500;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double lowPriorityShare;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile double limit;
+    // Guarded by updateLock
+    private double shortRtt;
+    private double longRtt;
+
+    public GradientConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double lowPriorityShare) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.lowPriorityShare = lowPriorityShare;
+    }
+
+    // Returns the in-flight count at admission (pass it to release), or -1 when shed
+    public int tryAcquire(boolean highPriority) {
+        int max = (int) (highPriority ? limit : Math.max(1, limit * lowPriorityShare));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= max) {
+                rejected.increment();
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                accepted.increment();
+                return current + 1;
+            }
+        }
+    }
+
+    // rttNanos < 0 releases without a sample (the request failed before doing real work)
+    public void release(int inFlightAtStart, long rttNanos) {
+        inFlight.decrementAndGet();
+        if (rttNanos <= 0) return;
+
+        // Samples are only hints; skip one rather than wait for the lock
+        if (!updateLock.tryLock()) return;
+        try {
+            update(inFlightAtStart, rttNanos);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void update(int inFlightAtStart, double rtt) {
+        if (longRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+            return;
+        }
+        shortRtt += (rtt - shortRtt) / SHORT_WINDOW;
+        longRtt += (rtt - longRtt) / LONG_WINDOW;
+
+        // After a slow period the baseline itself is too high; let it come down faster
+        if (longRtt / shortRtt > 2) longRtt *= 0.95;
+
+        double current = limit;
+        // Not enough load to tell whether a bigger limit would hurt
+        if (inFlightAtStart < current / 2 && shortRtt <= longRtt) return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, longRtt / shortRtt));
+        double target = current * gradient + Math.sqrt(current);
+        double next = current * (1 - SMOOTHING) + target * SMOOTHING;
+
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("limit", (int) limit);
+        out.put("lowPriorityLimit", (int) Math.max(1, limit * lowPriorityShare));
+        out.put("inFlight", inFlight.get());
+        out.put("accepted", accepted.sum());
+        out.put("rejected", rejected.sum());
+        out.put("shortRttMillis", shortRtt / 1_000_000.0);
+        out.put("longRttMillis", longRtt / 1_000_000.0);
+        return out;
+    }
+}
@@ -1,18 +1,29 @@
 package com.simpleshop.util;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.simpleshop.config.JwtAuthConverter;
+import com.simpleshop.config.RevocationFilter;
+import com.simpleshop.model.Permission;
+import com.simpleshop.service.RevocationService;
+import com.simpleshop.service.RoleService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.web.authentication.BearerTokenAuthenticationFilter;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 
 @Configuration
 @EnableMethodSecurity
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, RevocationService revocationService, ObjectMapper objectMapper,
+                                                   JwtAuthConverter jwtAuthConverter, RoleService roleService) throws Exception {
 
         http
                 .csrf(csrf -> csrf.disable())
@@ -24,9 +35,13 @@ public class SecurityConfig {
 
                         // Customer self-onboarding (registration)
                         .requestMatchers("/api/customers/register").permitAll()
+                        .requestMatchers("/api/customers/register/status/**").permitAll() // keyed on an unguessable status token
 
-                        // Admin-only endpoints
-                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        // Admin endpoints, by permission (see role_definitions)
+                        .requestMatchers("/api/admin/customers/import").access(permission(roleService, Permission.CUSTOMER_IMPORT))
+                        .requestMatchers("/api/admin/customers/bulk/delete").access(permission(roleService, Permission.CUSTOMER_DELETE_ANY))
+                        .requestMatchers("/api/admin/customers/bulk/**").access(permission(roleService, Permission.CUSTOMER_BLOCK))
+                        .requestMatchers("/api/admin/**").access(permission(roleService, Permission.ADMIN_CONSOLE))
 
                         // User endpoints (USER or ADMIN)
                         .requestMatchers("/api/user/**").hasAnyRole("USER", "ADMIN")
@@ -39,10 +54,18 @@ public class SecurityConfig {
                 )
                 .oauth2ResourceServer(oauth2 -> oauth2
                         .jwt(jwt -> jwt
-                                .jwtAuthenticationConverter(new JwtAuthConverter())
+                                .jwtAuthenticationConverter(jwtAuthConverter)
                         )
-                );
+                )
+
+                // Logged-out sessions and blocked users, without asking Keycloak
+                .addFilterAfter(new RevocationFilter(revocationService, objectMapper), BearerTokenAuthenticationFilter.class);
 
         return http.build();
     }
+
+    private static AuthorizationManager<RequestAuthorizationContext> permission(RoleService roleService, Permission permission) {
+        return (authentication, context) -> new AuthorizationDecision(
+                authentication.get().getPrincipal() instanceof Jwt jwt && roleService.hasPermission(jwt, permission));
+    }
 }
@@ -0,0 +1,139 @@
+package com.simpleshop.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Token buckets for an unbounded key space in a fixed number of slots.
+// A key hashes to one stripe of WAYS adjacent slots (set-associative, like a CPU
+// cache); each slot holds an immutable bucket swapped in with compareAndSet, so
+// there are no locks and no per-key map entries. When a stripe is full a new key
+// takes the slot of a bucket that has refilled completely (it carries no state),
+// else the least recently seen one. An evicted key starts over with a full bucket.
+public final class StripedTokenBucket {
+
+    private static final int WAYS = 8;
+
+    private final AtomicReferenceArray<Bucket> slots;
+    private final int stripeMask;
+    private final double capacity;
+    private final double tokensPerNano;
+    // Random per instance so colliding keys cannot be precomputed
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    // tokens as of refilledAt; seenAt drives LRU and is also bumped by rejected attempts
+    private record Bucket(long key, double tokens, long refilledAt, long seenAt) {
+    }
+
+    public StripedTokenBucket(int maxEntries, double capacity, double refillPerSecond) {
+        int stripes = Integer.highestOneBit(Math.max(1, (maxEntries + WAYS - 1) / WAYS) * 2 - 1);
+        this.slots = new AtomicReferenceArray<>(stripes * WAYS);
+        this.stripeMask = stripes - 1;
+        this.capacity = Math.max(1, capacity);
+        this.tokensPerNano = refillPerSecond / 1_000_000_000.0;
+    }
+
+    // 0 when a token was taken, otherwise nanoseconds until one will be available
+    public long tryAcquire(String key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    long tryAcquire(String key, long now) {
+        long hash = hash64(key);
+        int base = stripeOf(hash);
+
+        while (true) {
+            int victim = -1;
+            Bucket victimBucket = null;
+            boolean victimFree = false;
+            boolean raced = false;
+
+            for (int i = base; i < base + WAYS; i++) {
+                Bucket b = slots.get(i);
+
+                if (b == null) {
+                    if (!victimFree) {
+                        victim = i;
+                        victimBucket = null;
+                        victimFree = true;
+                    }
+                    continue;
+                }
+
+                double tokens = refill(b, now);
+
+                if (b.key == hash) {
+                    if (tokens >= 1) {
+                        if (slots.compareAndSet(i, b, new Bucket(hash, tokens - 1, now, now))) return 0;
+                    } else {
+                        long wait = (long) Math.ceil((1 - tokens) / tokensPerNano);
+                        // Keep a drained bucket from looking idle; losing this race is harmless
+                        if (now - b.seenAt > 0) slots.compareAndSet(i, b, new Bucket(b.key, b.tokens, b.refilledAt, now));
+                        return wait;
+                    }
+                    raced = true;
+                    break;
+                }
+
+                if (!victimFree && (tokens >= capacity || victimBucket == null || b.seenAt - victimBucket.seenAt < 0)) {
+                    victim = i;
+                    victimBucket = b;
+                    victimFree = tokens >= capacity;
+                }
+            }
+
+            if (!raced && slots.compareAndSet(victim, victimBucket, new Bucket(hash, capacity - 1, now, now))) return 0;
+        }
+    }
+
+    // Gives back a token taken by tryAcquire (the attempt was stopped by another limit)
+    public void refund(String key) {
+        long hash = hash64(key);
+        int base = stripeOf(hash);
+
+        for (int i = base; i < base + WAYS; i++) {
+            Bucket b;
+            while ((b = slots.get(i)) != null && b.key == hash) {
+                if (slots.compareAndSet(i, b, new Bucket(hash, Math.min(capacity, b.tokens + 1), b.refilledAt, b.seenAt))) return;
+            }
+        }
+    }
+
+    // Slots holding a bucket that is not yet full again; O(slots), for stats only
+    public int trackedKeys() {
+        long now = System.nanoTime();
+        int n = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            Bucket b = slots.get(i);
+            if (b != null && refill(b, now) < capacity) n++;
+        }
+        return n;
+    }
+
+    public int maxKeys() {
+        return slots.length();
+    }
+
+    private double refill(Bucket b, long now) {
+        long elapsed = now - b.refilledAt;
+        return elapsed <= 0 ? b.tokens : Math.min(capacity, b.tokens + elapsed * tokensPerNano);
+    }
+
+    private int stripeOf(long hash) {
+        return (int) ((hash >>> 32) & stripeMask) * WAYS;
+    }
+
+    // Seeded FNV-1a over the chars, finished with a murmur3 mix
+    private long hash64(String key) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,37 @@
+package com.simpleshop.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// RFC 9562 version 7 UUIDs: 48-bit unix millis, then 12 bits used as a per-process
+// sequence (method 1 of section 6.2), then 62 random bits.
+// Ids from one process sort in creation order, so B-tree inserts go to the right-most page.
+public final class UuidV7 {
+
+    private static final int SEQUENCE_BITS = 12;
+
+    // unixMillis << SEQUENCE_BITS | sequence of the last id
+    private static final AtomicLong STATE = new AtomicLong();
+
+    private UuidV7() {
+    }
+
+    public static UUID next() {
+        long next;
+        while (true) {
+            long prev = STATE.get();
+            long now = System.currentTimeMillis();
+            // Sequence overflow or clock step-back borrows the next millisecond
+            next = now > (prev >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : prev + 1;
+            if (STATE.compareAndSet(prev, next)) break;
+        }
+
+        long millis = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+
+        long msb = (millis << 16) | 0x7000L | sequence;
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
@@ -0,0 +1,7 @@
+-- Node ids for SequenceCustomerIdGenerator on nodes started without customer.id.node-id.
+-- A row is claimed by inserting it (or taking over one whose lease ran out) and renewed while the node runs.
+CREATE TABLE IF NOT EXISTS customer_id_node_leases (
+    node_id     integer      PRIMARY KEY,
+    owner       varchar(255) NOT NULL,
+    lease_until timestamptz  NOT NULL
+);
@@ -0,0 +1,4 @@
+-- CustomerImportService checks each chunk for emails already registered in any case:
+--   WHERE lower(email) IN (...)
+-- (usernames use customers_username_lower_c_idx from reconciliation-migration.sql)
+CREATE INDEX IF NOT EXISTS customers_email_lower_idx ON customers (lower(email));
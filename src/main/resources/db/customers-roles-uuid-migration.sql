@@ -0,0 +1,19 @@
+-- Moves customers.id and roles.id from CHAR(36) text to native uuid (16 bytes).
+-- Existing v4 values are kept as they are; rows inserted afterwards get time-ordered v7 ids.
+-- Nothing references these columns (roles links to customers.customer_id), so no FK has to move.
+-- Run once, in a maintenance window: ALTER ... TYPE rewrites each table under an ACCESS EXCLUSIVE lock.
+-- Deploy the application change right after; the old build writes text ids.
+
+BEGIN;
+
+ALTER TABLE customers ALTER COLUMN id TYPE uuid USING id::uuid;
+ALTER TABLE roles     ALTER COLUMN id TYPE uuid USING id::uuid;
+
+COMMIT;
+
+-- The rewrite rebuilds the primary key indexes; refresh planner statistics afterwards
+ANALYZE customers;
+ANALYZE roles;
+
+-- Before/after check:
+-- SELECT relname, pg_size_pretty(pg_relation_size(oid)) FROM pg_class WHERE relname IN ('customers_pkey', 'roles_pkey');
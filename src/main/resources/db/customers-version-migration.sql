@@ -0,0 +1,3 @@
+-- customers.version drives optimistic locking and the ETags on the customer endpoints.
+-- ddl-auto=update would add the column, but existing rows need a value before it can be NOT NULL.
+ALTER TABLE customers ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
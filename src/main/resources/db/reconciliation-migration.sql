@@ -0,0 +1,4 @@
+-- KeycloakReconciler reads customers in Keycloak's username order, one chunk at a time:
+--   WHERE lower(username) COLLATE "C" >= ? AND lower(username) COLLATE "C" < ?
+-- reconciliation_checkpoints itself is created by Hibernate (ddl-auto=update).
+CREATE INDEX IF NOT EXISTS customers_username_lower_c_idx ON customers ((lower(username) COLLATE "C"));
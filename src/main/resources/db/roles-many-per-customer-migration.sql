@@ -0,0 +1,30 @@
+-- Role becomes many-per-customer and role names map to permissions through role_definitions.
+-- Hibernate (ddl-auto=update) creates role_definitions / role_definition_permissions and the
+-- application seeds USER and ADMIN when they are empty; this script covers what update cannot do.
+
+-- 1. Drop the one-role-per-customer unique constraint on roles.customer_ref_id (generated name)
+DO $$
+DECLARE
+    c record;
+BEGIN
+    FOR c IN
+        SELECT con.conname
+          FROM pg_constraint con
+          JOIN pg_attribute att ON att.attrelid = con.conrelid AND att.attnum = ANY (con.conkey)
+         WHERE con.conrelid = 'roles'::regclass
+           AND con.contype = 'u'
+           AND att.attname = 'customer_ref_id'
+           AND array_length(con.conkey, 1) = 1
+    LOOP
+        EXECUTE format('ALTER TABLE roles DROP CONSTRAINT %I', c.conname);
+    END LOOP;
+END $$;
+
+-- Lookups by customer still need an index, and a role should not be granted twice
+CREATE UNIQUE INDEX IF NOT EXISTS roles_customer_role_uk ON roles (customer_ref_id, role_name);
+
+-- 2. Example: give support staff read and block rights without full admin
+-- INSERT INTO role_definitions (role_name) VALUES ('SUPPORT');
+-- INSERT INTO role_definition_permissions (role_name, permission)
+--      VALUES ('SUPPORT', 'CUSTOMER_READ_ANY'), ('SUPPORT', 'CUSTOMER_BLOCK');
+-- Picked up within security.permissions.reload-interval-seconds, or via POST /api/admin/permissions/reload.
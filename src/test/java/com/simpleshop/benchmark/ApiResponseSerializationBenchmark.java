@@ -0,0 +1,104 @@
+package com.simpleshop.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.simpleshop.constants.ResponseMessages;
+import com.simpleshop.dto.CustomerDTO;
+import com.simpleshop.response.ApiResponse;
+import com.simpleshop.response.ApiResponseSerializer;
+import com.simpleshop.response.CannedResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Response body serialization as the Jackson converter does it (reflective bean serializers,
+// data looked up as Object) against CannedResponse bytes and ApiResponseSerializer.
+// Run with -prof gc for bytes allocated per response.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiResponseSerializationBenchmark {
+
+    private ObjectMapper reflective;
+    private ObjectMapper typed;
+    private CustomerDTO customer;
+    private List<CustomerDTO> customers;
+
+    // The servlet output stream; bytes are discarded
+    private static final class Sink extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    private final Sink sink = new Sink();
+
+    @Setup
+    public void setUp() throws IOException {
+        reflective = new ObjectMapper();
+        typed = new ObjectMapper().registerModule(new SimpleModule().addSerializer(new ApiResponseSerializer()));
+
+        customer = new CustomerDTO("0192f1e4-7a1b-7cc0-8a9e-0c3d5f2b6a10", "CUS_010125_0000000001", "8a5d7f0e-1c2b-4e3a-9f8d-7c6b5a4e3d2c",
+                "jane.doe", "Jane", "Doe", "jane.doe@example.com", true, 3);
+        customers = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            customers.add(new CustomerDTO("id-" + i, "CUS_010125_" + i, "kc-" + i, "user" + i, "First" + i, "Last" + i, "user" + i + "@example.com", i % 2 == 0, i));
+        }
+
+        // Both paths must produce the same bytes
+        check(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, customer));
+        check(new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, customers));
+        if (!Arrays.equals(reflective.writeValueAsBytes(new ApiResponse(false, ResponseMessages.ACCESS_DENIED, null)),
+                CannedResponse.failure(ResponseMessages.ACCESS_DENIED).json(typed))) {
+            throw new IllegalStateException("Canned response differs from reflective output");
+        }
+    }
+
+    private void check(ApiResponse response) throws IOException {
+        if (!Arrays.equals(reflective.writeValueAsBytes(response), typed.writeValueAsBytes(response))) {
+            throw new IllegalStateException("Typed serializer output differs for " + response);
+        }
+    }
+
+    @Benchmark
+    public void accessDeniedReflective() throws IOException {
+        reflective.writeValue(sink, new ApiResponse(false, ResponseMessages.ACCESS_DENIED, null));
+    }
+
+    @Benchmark
+    public void accessDeniedCanned() throws IOException {
+        sink.write(CannedResponse.failure(ResponseMessages.ACCESS_DENIED).json(typed));
+    }
+
+    @Benchmark
+    public void customerReflective() throws IOException {
+        reflective.writeValue(sink, new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, customer));
+    }
+
+    @Benchmark
+    public void customerTyped() throws IOException {
+        typed.writeValue(sink, new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, customer));
+    }
+
+    @Benchmark
+    public void customerListReflective() throws IOException {
+        reflective.writeValue(sink, new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, customers));
+    }
+
+    @Benchmark
+    public void customerListTyped() throws IOException {
+        typed.writeValue(sink, new ApiResponse(true, ResponseMessages.FETCH_SUCCESS, customers));
+    }
+}
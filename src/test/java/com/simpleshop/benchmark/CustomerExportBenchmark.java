@@ -0,0 +1,102 @@
+package com.simpleshop.benchmark;
+
+import com.simpleshop.repository.CustomerJdbcRepository;
+import com.simpleshop.service.CustomerExportService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Full export of 1M customers through CustomerExportService into a byte-counting sink.
+// H2 file database with lazy query execution, so the result set is not materialized either.
+// The fork runs with a 128 MB heap, well below what the rows would take as a List<CustomerDTO>;
+// run with -prof gc to see that allocation is per row and nothing is retained.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx128m"})
+@State(Scope.Benchmark)
+public class CustomerExportBenchmark {
+
+    @Param({"1000000"})
+    public int customers;
+
+    @Param({"CSV", "NDJSON"})
+    public CustomerExportService.Format format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private Path directory;
+    private HikariDataSource dataSource;
+    private CustomerExportService exportService;
+    private List<String> columns;
+
+    public static final class CountingOutputStream extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("customer-export-bench");
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:file:" + directory.resolve("customers") + ";LAZY_QUERY_EXECUTION=TRUE");
+        dataSource.setUsername("sa");
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE customers (id UUID PRIMARY KEY, customer_id VARCHAR(40) NOT NULL, keycloak_id VARCHAR(40), "
+                + "username VARCHAR(255), first_name VARCHAR(255), last_name VARCHAR(255), email VARCHAR(255), "
+                + "password VARCHAR(255), active BOOLEAN NOT NULL)");
+
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < customers; i++) {
+            batch.add(new Object[]{new UUID(i, i), "CUS_010125_" + i, UUID.randomUUID().toString(), "user" + i,
+                    "First" + i, i % 100 == 0 ? "O'Brien, \"Jr\"" : "Last" + i, "user" + i + "@example.com",
+                    "not-exported", i % 10 != 0});
+            if (batch.size() == 10_000) {
+                jdbc.batchUpdate("INSERT INTO customers VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) jdbc.batchUpdate("INSERT INTO customers VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+
+        exportService = new CustomerExportService(new CustomerJdbcRepository(jdbc),
+                new DataSourceTransactionManager(dataSource), 5000);
+        columns = exportService.resolveColumns(null);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dataSource.close();
+        try (var files = Files.walk(directory)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        exportService.export(format, columns, null, gzip, out);
+        return out.bytes;
+    }
+}
@@ -0,0 +1,46 @@
+package com.simpleshop.benchmark;
+
+import com.simpleshop.service.RandomCustomerIdGenerator;
+import com.simpleshop.service.SequenceCustomerIdGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// Run from the IDE or with:
+//   mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.simpleshop.benchmark.CustomerIdGeneratorBenchmark
+// Add -prof gc (OptionsBuilder.addProfiler) to compare allocation per id.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerIdGeneratorBenchmark {
+
+    private RandomCustomerIdGenerator random;
+    private SequenceCustomerIdGenerator sequence;
+
+    @Setup
+    public void setUp() {
+        random = new RandomCustomerIdGenerator();
+        sequence = new SequenceCustomerIdGenerator(1, 60, null);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String random() {
+        return random.next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String sequence() {
+        return sequence.next();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(CustomerIdGeneratorBenchmark.class.getSimpleName()).build()).run();
+    }
+}
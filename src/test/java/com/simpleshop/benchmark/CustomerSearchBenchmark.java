@@ -0,0 +1,73 @@
+package com.simpleshop.benchmark;
+
+import com.simpleshop.dto.CustomerDTO;
+import com.simpleshop.dto.CustomerSearchPageDTO;
+import com.simpleshop.service.CustomerSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Query latency of CustomerSearchIndex over synthetic customers (no database: the index is
+// filled through upsert, the path CustomerChangedEvent uses). Needs a large heap, e.g.
+//   -jvmArgs -Xmx6g -p customers=2000000
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CustomerSearchBenchmark {
+
+    private static final String[] FIRST = {"anna", "ben", "carla", "david", "elif", "farid", "greta", "hugo", "ines", "jonas",
+            "karim", "lena", "marco", "nina", "omar", "paula", "quentin", "rosa", "samir", "tanja"};
+    private static final String[] LAST = {"schmidt", "muller", "rossi", "garcia", "novak", "kowalski", "dubois", "jensen",
+            "yilmaz", "silva", "smith", "brown", "martin", "bernard", "costa", "weber", "fischer", "wagner"};
+    private static final String[] DOMAINS = {"gmail.com", "outlook.com", "example.org", "partner.de", "mail.fr"};
+
+    @Param("1000000")
+    public int customers;
+
+    private CustomerSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new CustomerSearchIndex(null, null, 1000, 200_000, 1000);
+        Random random = new Random(42);
+        for (int i = 0; i < customers; i++) {
+            String first = FIRST[random.nextInt(FIRST.length)];
+            String last = LAST[random.nextInt(LAST.length)];
+            String user = first + "." + last + i;
+            index.upsert(new CustomerDTO(null, "CUS_" + i, null, user,
+                    capitalize(first), capitalize(last), user + "@" + DOMAINS[random.nextInt(DOMAINS.length)], true, 0));
+        }
+    }
+
+    // Rare exact-ish hit: the usual support lookup by a piece of the username
+    @Benchmark
+    public CustomerSearchPageDTO selectiveSubstring() {
+        return index.search("rossi12345", 0, 20);
+    }
+
+    // Two terms, each common on its own
+    @Benchmark
+    public CustomerSearchPageDTO twoTerms() {
+        return index.search("greta wag", 0, 20);
+    }
+
+    // Very common short prefix: worst case, bounded by customer.search.max-candidates
+    @Benchmark
+    public CustomerSearchPageDTO broadPrefix() {
+        return index.search("an", 0, 20);
+    }
+
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(CustomerSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
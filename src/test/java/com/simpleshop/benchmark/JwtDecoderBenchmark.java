@@ -0,0 +1,78 @@
+package com.simpleshop.benchmark;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.simpleshop.config.CachingJwtDecoder;
+import com.simpleshop.config.JwtAuthConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Bearer token -> Authentication as the resource server does it: decode (RS256 verify +
+// validators) and authority mapping. "uncached" is the plain Nimbus decoder, "cached" goes
+// through CachingJwtDecoder, so every call after the first is a hash and two cache hits.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtDecoderBenchmark {
+
+    private String token;
+    private JwtDecoder uncached;
+    private JwtDecoder cached;
+    private JwtAuthConverter converter;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keys = generator.generateKeyPair();
+
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject("6f1c2d1e-0000-4000-8000-000000000001")
+                .issuer("http://localhost:8080/realms/simple-shop")
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plusSeconds(3600)))
+                .claim("sid", "5b2c0f3e-0000-4000-8000-000000000002")
+                .claim("realm_access", Map.of("roles", List.of("USER", "offline_access", "uma_authorization")))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.RS256), claims);
+        jwt.sign(new RSASSASigner(keys.getPrivate()));
+        token = jwt.serialize();
+
+        uncached = NimbusJwtDecoder.withPublicKey((RSAPublicKey) keys.getPublic()).build();
+        cached = new CachingJwtDecoder(NimbusJwtDecoder.withPublicKey((RSAPublicKey) keys.getPublic()).build(), 10_000);
+        converter = new JwtAuthConverter(10_000);
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken uncached() {
+        return converter.convert(uncached.decode(token));
+    }
+
+    @Benchmark
+    public AbstractAuthenticationToken cached() {
+        return converter.convert(cached.decode(token));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(JwtDecoderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
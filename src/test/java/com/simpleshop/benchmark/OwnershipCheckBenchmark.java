@@ -0,0 +1,100 @@
+package com.simpleshop.benchmark;
+
+import com.simpleshop.model.Customer;
+import com.simpleshop.model.Role;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Ownership check as it used to run (load the Customer entity, compare keycloakId) against the
+// existence query behind CustomerRepository.existsByCustomerIdAndKeycloakId. Each invocation
+// opens a session the way a request-scoped persistence context would.
+// Hibernate on in-memory H2 behind a Hikari pool; run with -prof gc to see the allocation difference per check.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OwnershipCheckBenchmark {
+
+    private static final int CUSTOMERS = 10_000;
+
+    private HikariDataSource dataSource;
+    private SessionFactory sessionFactory;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:ownership;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+
+        Configuration configuration = new Configuration()
+                .addAnnotatedClass(Customer.class)
+                .addAnnotatedClass(Role.class)
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        configuration.getProperties().put("hibernate.connection.datasource", dataSource);
+        sessionFactory = configuration.buildSessionFactory();
+
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < CUSTOMERS; i++) {
+                Customer c = new Customer();
+                c.setCustomerId("CUS_" + i);
+                c.setKeycloakId("kc-" + i);
+                c.setUserName("user" + i);
+                c.setEmail("user" + i + "@example.com");
+                c.setPassword("not-a-real-password-hash-but-similar-length-000000");
+                c.setFirstName("First" + i);
+                c.setLastName("Last" + i);
+                session.persist(c);
+                if (i % 500 == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public boolean entityLoad() {
+        int i = ThreadLocalRandom.current().nextInt(CUSTOMERS);
+        try (Session session = sessionFactory.openSession()) {
+            return session.createSelectionQuery("from Customer c where c.customerId = :id", Customer.class)
+                    .setParameter("id", "CUS_" + i)
+                    .uniqueResultOptional()
+                    .map(c -> ("kc-" + i).equals(c.getKeycloakId()))
+                    .orElse(false);
+        }
+    }
+
+    @Benchmark
+    public boolean existsQuery() {
+        int i = ThreadLocalRandom.current().nextInt(CUSTOMERS);
+        try (Session session = sessionFactory.openSession()) {
+            return session.createSelectionQuery(
+                            "select c.id from Customer c where c.customerId = :id and c.keycloakId = :kc", Object.class)
+                    .setParameter("id", "CUS_" + i)
+                    .setParameter("kc", "kc-" + i)
+                    .setMaxResults(1)
+                    .uniqueResultOptional()
+                    .isPresent();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(OwnershipCheckBenchmark.class.getSimpleName()).build()).run();
+    }
+}
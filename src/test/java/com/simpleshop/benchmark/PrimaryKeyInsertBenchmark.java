@@ -0,0 +1,72 @@
+package com.simpleshop.benchmark;
+
+import com.simpleshop.util.UuidV7;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.UUID;
+
+// Insert throughput and primary-key index size: random v4 ids in CHAR(36) (old scheme)
+// against UUIDv7 in a native uuid column. Batch inserts are not a JMH-shaped workload,
+// so this is a plain main().
+//
+//   -Dbench.url=jdbc:postgresql://localhost:5432/bench -Dbench.user=... -Dbench.password=...
+//   -Dbench.rows=1000000
+// Defaults to an in-memory H2 database, which reports throughput only.
+public class PrimaryKeyInsertBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("bench.url", "jdbc:h2:mem:pkbench;DB_CLOSE_DELAY=-1");
+        String user = System.getProperty("bench.user", "sa");
+        String password = System.getProperty("bench.password", "");
+        int rows = Integer.getInteger("bench.rows", 500_000);
+        int batch = Integer.getInteger("bench.batch", 1_000);
+
+        try (Connection con = DriverManager.getConnection(url, user, password)) {
+            con.setAutoCommit(false);
+            boolean postgres = con.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres");
+
+            run(con, postgres, "pk_v4_char36", "CHAR(36)", rows, batch, false);
+            run(con, postgres, "pk_v7_uuid", "UUID", rows, batch, true);
+        }
+    }
+
+    private static void run(Connection con, boolean postgres, String table, String idType,
+                            int rows, int batch, boolean v7) throws Exception {
+        try (Statement st = con.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS " + table);
+            st.execute("CREATE TABLE " + table + " (id " + idType + " PRIMARY KEY, customer_id VARCHAR(32) NOT NULL)");
+        }
+        con.commit();
+
+        long started = System.nanoTime();
+        try (PreparedStatement ps = con.prepareStatement("INSERT INTO " + table + " (id, customer_id) VALUES (?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                if (v7) ps.setObject(1, UuidV7.next());
+                else ps.setString(1, UUID.randomUUID().toString());
+                ps.setString(2, "CUS_" + i);
+                ps.addBatch();
+                if (i % batch == 0) {
+                    ps.executeBatch();
+                    con.commit();
+                }
+            }
+            ps.executeBatch();
+            con.commit();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        String indexSize = "n/a";
+        if (postgres) {
+            try (Statement st = con.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT pg_size_pretty(pg_relation_size('" + table + "_pkey'))")) {
+                if (rs.next()) indexSize = rs.getString(1);
+            }
+        }
+
+        System.out.printf("%-14s %9d rows  %8.0f rows/s  pk index %s%n", table, rows, rows / seconds, indexSize);
+    }
+}
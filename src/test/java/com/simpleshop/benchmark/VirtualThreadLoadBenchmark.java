@@ -0,0 +1,294 @@
+package com.simpleshop.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+// Platform vs virtual request threads vs async servlets for a Keycloak-bound endpoint. An embedded
+// Tomcat serves a login-shaped servlet that calls a stub token endpoint with a fixed latency:
+// one blocking RestTemplate call (pooled httpclient5, as in RestConfig) on a platform or virtual
+// thread, or in async mode the non-blocking client KeycloakAuthService uses, with the servlet
+// thread released until the answer arrives. Closed-loop clients at each concurrency level report
+// throughput and latency percentiles for every mode.
+// Needs a file-descriptor limit above 2x the highest concurrency. A plain main():
+//
+//   -Dbench.clients=1000,2500,5000,10000 -Dbench.seconds=15 -Dbench.keycloak-latency-ms=50
+//   -Dbench.platform-threads=200 (Tomcat default) -Dbench.pool=2000 (Keycloak HTTP pool)
+//   -Dbench.modes=platform,virtual,async -Dbench.io-threads=2 (async client event loops)
+//   -Djdk.tracePinnedThreads=short to print pinning while it runs
+public class VirtualThreadLoadBenchmark {
+
+    private static final String TOKEN_JSON = "{\"access_token\":\"" + "x".repeat(900) + "\",\"expires_in\":300,"
+            + "\"refresh_token\":\"" + "y".repeat(600) + "\",\"token_type\":\"Bearer\"}";
+
+    public static void main(String[] args) throws Exception {
+        int[] clientCounts = Arrays.stream(System.getProperty("bench.clients", "1000,2500,5000,10000").split(","))
+                .mapToInt(s -> Integer.parseInt(s.trim())).toArray();
+        int seconds = Integer.getInteger("bench.seconds", 15);
+        int latencyMillis = Integer.getInteger("bench.keycloak-latency-ms", 50);
+        int platformThreads = Integer.getInteger("bench.platform-threads", 200);
+        int pool = Integer.getInteger("bench.pool", 2000);
+        int ioThreads = Integer.getInteger("bench.io-threads", 2);
+        String[] modes = System.getProperty("bench.modes", "platform,virtual,async").split(",");
+
+        HttpServer keycloak = stubKeycloak(latencyMillis);
+        String tokenUrl = "http://127.0.0.1:" + keycloak.getAddress().getPort() + "/realms/shop/protocol/openid-connect/token";
+
+        System.out.printf("%-9s %8s %12s %10s %10s %10s %8s%n", "mode", "clients", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        try {
+            for (String mode : modes) {
+                mode = mode.trim();
+                CloseableHttpAsyncClient asyncClient = "async".equals(mode) ? asyncClient(pool, ioThreads) : null;
+                Tomcat tomcat = startTomcat(mode, platformThreads, tokenUrl, pool, asyncClient);
+                int port = tomcat.getConnector().getLocalPort();
+                try {
+                    for (int clients : clientCounts) {
+                        run(mode, "http://127.0.0.1:" + port + "/api/auth/login", clients, seconds);
+                    }
+                } finally {
+                    tomcat.stop();
+                    tomcat.destroy();
+                    if (asyncClient != null) asyncClient.close();
+                }
+            }
+        } finally {
+            keycloak.stop(0);
+        }
+    }
+
+    // Token endpoint: waits like a password grant would, then answers with a token-sized body
+    private static HttpServer stubKeycloak(int latencyMillis) throws IOException {
+        // The JDK server closes idle keep-alive connections beyond 200, which the client pool
+        // would then reuse and fail on (NoHttpResponseException)
+        System.setProperty("sun.net.httpserver.maxIdleConnections", "20000");
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 20_000);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = TOKEN_JSON.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    // Same shape as RestConfig.keycloakAsyncClient
+    private static CloseableHttpAsyncClient asyncClient(int pool, int ioThreads) {
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(pool)
+                        .setMaxConnPerRoute(pool)
+                        .setDefaultTlsConfig(TlsConfig.custom().setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_1).build())
+                        .build())
+                .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(ioThreads).build())
+                .disableAutomaticRetries()
+                .build();
+        client.start();
+        return client;
+    }
+
+    private static Tomcat startTomcat(String mode, int platformThreads, String tokenUrl, int pool,
+                                      CloseableHttpAsyncClient asyncClient) throws Exception {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("vt-bench").toString());
+
+        Connector connector = new Connector("HTTP/1.1");
+        connector.setPort(0);
+        AbstractProtocol<?> protocol = (AbstractProtocol<?>) connector.getProtocolHandler();
+        protocol.setMaxConnections(20_000);
+        protocol.setAcceptCount(10_000);
+        if ("virtual".equals(mode)) {
+            // What spring.threads.virtual.enabled=true configures on the embedded connector
+            protocol.setExecutor(new VirtualThreadExecutor("tomcat-handler-"));
+        } else {
+            protocol.setMaxThreads(platformThreads);
+        }
+        tomcat.setConnector(connector);
+
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(pool)
+                        .setMaxConnPerRoute(pool)
+                        .build())
+                .build()));
+
+        Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "login", new HttpServlet() {
+            @Override
+            protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                // Same shape as KeycloakAuthService.loginWithPassword
+                MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+                form.add("grant_type", "password");
+                form.add("client_id", "shop");
+                form.add("username", "user@example.com");
+                form.add("password", "secret");
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+
+                Map<?, ?> token = restTemplate.postForEntity(tokenUrl, new HttpEntity<>(form, headers), Map.class).getBody();
+
+                resp.setContentType("application/json");
+                resp.getOutputStream().write(("{\"success\":true,\"data\":{\"expires_in\":" + token.get("expires_in") + "}}")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        if (asyncClient != null) {
+            // Same shape as KeycloakAuthService.post: form body, completion on the I/O thread
+            String form = "grant_type=password&client_id=shop&username=user%40example.com&password=secret";
+            Tomcat.addServlet(context, "login-async", new HttpServlet() {
+                @Override
+                protected void doPost(HttpServletRequest req, HttpServletResponse resp) {
+                    AsyncContext async = req.startAsync();
+                    async.setTimeout(60_000);
+
+                    SimpleHttpRequest request = SimpleHttpRequest.create(Method.POST.name(), tokenUrl);
+                    request.setBody(form, ContentType.APPLICATION_FORM_URLENCODED);
+                    asyncClient.execute(request, new FutureCallback<SimpleHttpResponse>() {
+                        @Override
+                        public void completed(SimpleHttpResponse response) {
+                            try {
+                                resp.setContentType("application/json");
+                                resp.getOutputStream().write(("{\"success\":true,\"data\":{\"bytes\":" + response.getBodyBytes().length + "}}")
+                                        .getBytes(StandardCharsets.UTF_8));
+                            } catch (IOException e) {
+                                resp.setStatus(500);
+                            }
+                            async.complete();
+                        }
+
+                        @Override
+                        public void failed(Exception e) {
+                            resp.setStatus(502);
+                            async.complete();
+                        }
+
+                        @Override
+                        public void cancelled() {
+                            resp.setStatus(502);
+                            async.complete();
+                        }
+                    });
+                }
+            }).setAsyncSupported(true);
+        }
+        context.addServletMappingDecoded("/api/auth/login", asyncClient != null ? "login-async" : "login");
+
+        tomcat.start();
+        return tomcat;
+    }
+
+    // Closed loop: each client sends its next request as soon as the previous one completes
+    private static void run(String mode, String url, int clients, int seconds) throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"user@example.com\",\"password\":\"secret\"}"))
+                .build();
+
+        long warmupEnd = System.nanoTime() + Duration.ofSeconds(Math.max(2, seconds / 5)).toNanos();
+        long end = warmupEnd + Duration.ofSeconds(seconds).toNanos();
+
+        long[][] latencies = new long[clients][];
+        LongAdder errors = new LongAdder();
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            Thread.ofVirtual().start(() -> {
+                long[] samples = new long[1024];
+                int n = 0;
+                try {
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        try {
+                            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                            long took = System.nanoTime() - now;
+                            if (now < warmupEnd) continue;
+                            if (response.statusCode() != 200) {
+                                errors.increment();
+                                continue;
+                            }
+                            if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                            samples[n++] = took;
+                        } catch (IOException e) {
+                            if (now >= warmupEnd) errors.increment();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latencies[client] = Arrays.copyOf(samples, n);
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        double throughput = all.length / (double) seconds;
+        System.out.printf("%-9s %8d %12.0f %10.1f %10.1f %10.1f %8d%n", mode, clients, throughput,
+                percentile(all, 0.50), percentile(all, 0.99), all.length == 0 ? 0.0 : all[all.length - 1] / 1e6, errors.sum());
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+}
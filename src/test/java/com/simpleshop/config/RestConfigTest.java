@@ -0,0 +1,78 @@
+package com.simpleshop.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RestConfigTest {
+
+    private HttpServer keycloak;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private RestTemplate restTemplate;
+    private String baseUrl;
+    private volatile long logoutDelayMillis;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        keycloak = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        keycloak.createContext("/realms/shop/protocol/openid-connect/logout", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(logoutDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        keycloak.setExecutor(Executors.newCachedThreadPool());
+        keycloak.start();
+        baseUrl = "http://127.0.0.1:" + keycloak.getAddress().getPort() + "/realms/shop/protocol/openid-connect/logout";
+
+        KeycloakHttpProperties httpProps = new KeycloakHttpProperties();
+        KeycloakHttpProperties.Timeouts logoutTimeouts = new KeycloakHttpProperties.Timeouts();
+        logoutTimeouts.setTotalTimeout(300);
+        httpProps.getEndpoints().put(KeycloakEndpoint.LOGOUT, logoutTimeouts);
+
+        RestConfig config = new RestConfig();
+        connectionManager = config.keycloakConnectionManager(httpProps);
+        restTemplate = config.restTemplate(httpProps, connectionManager, new KeycloakHttpMetrics());
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionManager.close();
+        keycloak.stop(0);
+    }
+
+    @Test
+    void finishedRequestLeavesNoDeadlineBehind() {
+        for (int i = 0; i < 20; i++) {
+            restTemplate.postForEntity(baseUrl, "x", Void.class);
+        }
+
+        assertEquals(0, RestConfig.pendingDeadlines());
+    }
+
+    @Test
+    void slowResponseIsAbortedAtTheTotalDeadline() {
+        logoutDelayMillis = 2_000;
+
+        long start = System.nanoTime();
+        assertThrows(ResourceAccessException.class, () -> restTemplate.postForEntity(baseUrl, "x", Void.class));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 1_500, "took " + elapsedMillis + " ms");
+        assertEquals(0, RestConfig.pendingDeadlines());
+    }
+}
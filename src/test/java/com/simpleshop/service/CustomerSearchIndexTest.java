@@ -0,0 +1,114 @@
+package com.simpleshop.service;
+
+import com.simpleshop.dto.CustomerDTO;
+import com.simpleshop.dto.CustomerSearchHitDTO;
+import com.simpleshop.dto.CustomerSearchPageDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerSearchIndexTest {
+
+    // No repository: documents are fed in with upsert/remove, as the build and refreshes do
+    private final CustomerSearchIndex index = new CustomerSearchIndex(null, null, 100, 200_000, 50);
+
+    private void add(String customerId, String userName, String email, String firstName, String lastName) {
+        index.upsert(new CustomerDTO(null, customerId, null, userName, firstName, lastName, email, true, 0));
+    }
+
+    private List<String> ids(CustomerSearchPageDTO page) {
+        return page.getItems().stream().map(CustomerSearchHitDTO::getCustomerId).toList();
+    }
+
+    @Test
+    void ranksWholeFieldAbovePrefixAboveSubstring() {
+        add("substring", "xmariax", "a@example.com", "Ann", "Lee");
+        add("prefix", "mariana", "b@example.com", "Bob", "Kay");
+        add("exact", "maria", "c@example.com", "Cid", "Roe");
+        add("word", "jo-maria2", "d@example.com", "Dan", "Fox");
+
+        assertEquals(List.of("exact", "prefix", "word", "substring"), ids(index.search("maria", 0, 10)));
+    }
+
+    @Test
+    void userNameOutranksTheSameMatchInLastName() {
+        add("last", "someone", "a@example.com", "Ann", "smith");
+        add("user", "smith", "b@example.com", "Bob", "Jones");
+
+        assertEquals(List.of("user", "last"), ids(index.search("smith", 0, 10)));
+    }
+
+    @Test
+    void everyTermMustMatch() {
+        add("both", "jdoe", "jane@example.com", "Jane", "Doe");
+        add("first", "jroe", "jane.roe@example.com", "Jane", "Roe");
+        add("last", "jodoe", "john@example.com", "John", "Doe");
+
+        assertEquals(List.of("both"), ids(index.search("jane doe", 0, 10)));
+        assertTrue(ids(index.search("jane nobody", 0, 10)).isEmpty());
+    }
+
+    @Test
+    void trigramCandidatesAreVerified() {
+        // Has every trigram of "abcd" ("abc", "bcd") but not the term itself
+        add("split", "abcxbcd", "a@example.com", "Ann", "Lee");
+        add("match", "xabcdx", "b@example.com", "Bob", "Kay");
+
+        assertEquals(List.of("match"), ids(index.search("abcd", 0, 10)));
+    }
+
+    @Test
+    void shortTermsOnlyMatchWordStarts() {
+        add("start", "alpha", "a@example.com", "Ann", "Lee");
+        add("inside", "xalpha", "b@example.com", "Bob", "Kay");
+
+        assertEquals(List.of("start"), ids(index.search("al", 0, 10)));
+    }
+
+    @Test
+    void pagesAreDisjointAndCoverEveryHit() {
+        for (int i = 0; i < 23; i++) add("c" + i, "user" + i, "u" + i + "@example.com", "First", "Last");
+
+        Set<String> seen = new HashSet<>();
+        for (int page = 0; page < 3; page++) {
+            CustomerSearchPageDTO result = index.search("user", page, 10);
+            assertEquals(23, result.getTotal());
+            assertEquals(page < 2 ? 10 : 3, result.getItems().size());
+            for (String id : ids(result)) assertTrue(seen.add(id), "repeated " + id);
+        }
+        assertEquals(23, seen.size());
+        assertTrue(index.search("user", 3, 10).getItems().isEmpty());
+    }
+
+    @Test
+    void equalScoresKeepInsertionOrder() {
+        add("first", "user1", "a@example.com", "Ann", "Lee");
+        add("second", "user2", "b@example.com", "Bob", "Kay");
+
+        assertEquals(List.of("first", "second"), ids(index.search("user", 0, 10)));
+    }
+
+    @Test
+    void updatesAndRemovalsAreVisible() {
+        add("c1", "oldname", "a@example.com", "Ann", "Lee");
+        add("c1", "newname", "a@example.com", "Ann", "Lee");
+        assertTrue(ids(index.search("oldname", 0, 10)).isEmpty());
+        assertEquals(List.of("c1"), ids(index.search("newname", 0, 10)));
+
+        index.remove("c1");
+        assertTrue(ids(index.search("newname", 0, 10)).isEmpty());
+    }
+
+    @Test
+    void rejectsPagesPastMaxResults() {
+        add("c1", "user", "a@example.com", "Ann", "Lee");
+
+        assertDoesNotThrow(() -> index.search("user", 4, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.search("user", 5, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.search("user", Integer.MAX_VALUE, 100));
+    }
+}
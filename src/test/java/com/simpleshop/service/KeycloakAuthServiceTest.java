@@ -0,0 +1,115 @@
+package com.simpleshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import com.simpleshop.config.KeycloakEndpoint;
+import com.simpleshop.config.KeycloakHttpMetrics;
+import com.simpleshop.config.KeycloakHttpProperties;
+import com.simpleshop.config.KeycloakProperties;
+import com.simpleshop.config.RestConfig;
+import com.simpleshop.exception.KeycloakAuthException;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeycloakAuthServiceTest {
+
+    private HttpServer keycloak;
+    private CloseableHttpAsyncClient httpClient;
+    private RevocationService revocationService;
+    private KeycloakAuthService authService;
+    private volatile int logoutStatus;
+    private volatile long logoutDelayMillis;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        keycloak = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        keycloak.createContext("/realms/shop/protocol/openid-connect/logout", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(logoutDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(logoutStatus, -1);
+            exchange.close();
+        });
+        keycloak.start();
+
+        KeycloakProperties props = new KeycloakProperties();
+        props.setServerUrl("http://127.0.0.1:" + keycloak.getAddress().getPort());
+        props.setRealm("shop");
+        props.setClientId("shop");
+
+        KeycloakHttpProperties httpProps = new KeycloakHttpProperties();
+        httpProps.setIoThreads(1);
+        KeycloakHttpProperties.Timeouts logoutTimeouts = new KeycloakHttpProperties.Timeouts();
+        logoutTimeouts.setTotalTimeout(300);
+        httpProps.getEndpoints().put(KeycloakEndpoint.LOGOUT, logoutTimeouts);
+        httpClient = new RestConfig().keycloakAsyncClient(httpProps);
+        revocationService = new RevocationService(900, 60, 1000, 0.01);
+        authService = new KeycloakAuthService(props, httpProps, httpClient, new KeycloakHttpMetrics(),
+                new ObjectMapper(), revocationService);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        httpClient.close();
+        keycloak.stop(0);
+    }
+
+    private static String refreshToken(String sid) {
+        return new PlainJWT(new JWTClaimsSet.Builder().subject("user-1").claim("sid", sid).build()).serialize();
+    }
+
+    @Test
+    void logoutAnsweredWith204SucceedsAndRevokesTheSession() throws Exception {
+        logoutStatus = 204;
+
+        assertTrue(authService.logoutByRefreshToken(refreshToken("session-1")).get(5, TimeUnit.SECONDS));
+        assertTrue(revocationService.isRevoked("session-1", null));
+    }
+
+    @Test
+    void rejectedRefreshTokenIsNotASuccess() throws Exception {
+        logoutStatus = 400;
+
+        assertFalse(authService.logoutByRefreshToken(refreshToken("session-2")).get(5, TimeUnit.SECONDS));
+        assertFalse(revocationService.isRevoked("session-2", null));
+    }
+
+    @Test
+    void serverErrorCompletesExceptionally() {
+        logoutStatus = 503;
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> authService.logoutByRefreshToken(refreshToken("session-3")).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(KeycloakAuthException.class, e.getCause());
+        assertFalse(((KeycloakAuthException) e.getCause()).isRejected());
+    }
+
+    @Test
+    void slowResponseFailsAtTheTotalDeadline() {
+        logoutStatus = 204;
+        logoutDelayMillis = 1500;
+
+        long started = System.nanoTime();
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> authService.logoutByRefreshToken(refreshToken("session-4")).get(5, TimeUnit.SECONDS));
+        long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertInstanceOf(KeycloakAuthException.class, e.getCause());
+        assertTrue(tookMillis < 1200, "gave up after " + tookMillis + " ms");
+        assertFalse(revocationService.isRevoked("session-4", null));
+    }
+}
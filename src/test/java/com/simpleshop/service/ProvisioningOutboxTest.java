@@ -0,0 +1,82 @@
+package com.simpleshop.service;
+
+import com.simpleshop.model.Customer;
+import com.simpleshop.model.ProvisioningTask;
+import com.simpleshop.model.Role;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProvisioningOutboxTest {
+
+    private HikariDataSource dataSource;
+    private SessionFactory sessionFactory;
+    private JdbcTemplate jdbcTemplate;
+    private ProvisioningOutbox outbox;
+
+    // Schema comes from the entity mappings, so the hand-written SQL is checked against the real column names
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:outbox;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+
+        Configuration configuration = new Configuration()
+                .addAnnotatedClass(Customer.class)
+                .addAnnotatedClass(Role.class)
+                .addAnnotatedClass(ProvisioningTask.class)
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop");
+        configuration.getProperties().put("hibernate.connection.datasource", dataSource);
+        sessionFactory = configuration.buildSessionFactory();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        outbox = new ProvisioningOutbox(null, jdbcTemplate, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+        dataSource.close();
+    }
+
+    private void customer(String customerId, String userName) {
+        jdbcTemplate.update("INSERT INTO customers (id, customer_id, username, email, password, active, version) VALUES (RANDOM_UUID(), ?, ?, ?, 'x', TRUE, 0)",
+                customerId, userName, userName + "@example.com");
+    }
+
+    private void task(String customerId, String status) {
+        jdbcTemplate.update("INSERT INTO provisioning_outbox (customer_id, status, attempts, next_attempt_at, created_at, updated_at) VALUES (?, ?, 0, now(), now(), now())",
+                customerId, status);
+    }
+
+    @Test
+    void pendingOrInProgressTaskIsOpenWhateverTheCase() {
+        customer("CUS_1", "Maria");
+        task("CUS_1", "PENDING");
+        customer("CUS_2", "bob");
+        task("CUS_2", "IN_PROGRESS");
+
+        assertTrue(outbox.hasOpenTaskForUsername("maria"));
+        assertTrue(outbox.hasOpenTaskForUsername("BOB"));
+    }
+
+    @Test
+    void finishedOrMissingTaskIsNotOpen() {
+        customer("CUS_1", "maria");
+        task("CUS_1", "DONE");
+        customer("CUS_2", "bob");
+        task("CUS_2", "FAILED");
+        customer("CUS_3", "ann");
+
+        assertFalse(outbox.hasOpenTaskForUsername("maria"));
+        assertFalse(outbox.hasOpenTaskForUsername("bob"));
+        assertFalse(outbox.hasOpenTaskForUsername("ann"));
+        assertFalse(outbox.hasOpenTaskForUsername("nobody"));
+    }
+}
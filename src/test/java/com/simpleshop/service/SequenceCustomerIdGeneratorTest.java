@@ -0,0 +1,61 @@
+package com.simpleshop.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequenceCustomerIdGeneratorTest {
+
+    private static final Clock FIXED = Clock.fixed(Instant.parse("2025-03-07T10:15:30Z"), ZoneOffset.UTC);
+
+    @Test
+    void keepsTheDayPrefixFormat() {
+        String id = new SequenceCustomerIdGenerator(7, FIXED).next();
+
+        assertTrue(id.matches("CUS_070325_[0-9A-HJKMNP-TV-Z]{10}"), id);
+    }
+
+    @Test
+    void frozenClockStillYieldsUniqueIds() {
+        // More than one millisecond's worth of sequence numbers, so the carry path is exercised
+        SequenceCustomerIdGenerator generator = new SequenceCustomerIdGenerator(1, FIXED);
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(ids.add(generator.next()));
+        }
+    }
+
+    @Test
+    void nodesNeverCollide() throws Exception {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int node = 0; node < 4; node++) {
+            SequenceCustomerIdGenerator generator = new SequenceCustomerIdGenerator(node, Clock.system(ZoneId.of("UTC")));
+            for (int t = 0; t < 2; t++) {
+                pool.submit(() -> {
+                    for (int i = 0; i < 25_000; i++) ids.add(generator.next());
+                });
+            }
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(4 * 2 * 25_000, ids.size());
+    }
+
+    @Test
+    void rejectsOutOfRangeNodeId() {
+        assertThrows(IllegalArgumentException.class, () -> new SequenceCustomerIdGenerator(1024, FIXED));
+    }
+}
@@ -0,0 +1,87 @@
+package com.simpleshop.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final List<CircuitBreaker.Transition> transitions = new ArrayList<>();
+
+    private CircuitBreaker breaker(long openMillis) {
+        return new CircuitBreaker("test", 10, 4, 0.5, openMillis, 2, transitions::add);
+    }
+
+    private static void fail(CircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) breaker.onResult(breaker.tryAcquire(), false);
+    }
+
+    @Test
+    void opensAtTheFailureRateAndRefusesCalls() {
+        CircuitBreaker breaker = breaker(60_000);
+
+        breaker.onResult(breaker.tryAcquire(), true);
+        breaker.onResult(breaker.tryAcquire(), true);
+        fail(breaker, 1);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state(), "below minimum calls");
+
+        fail(breaker, 1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertEquals(-1, breaker.tryAcquire());
+        assertEquals(1, transitions.size());
+        assertEquals(CircuitBreaker.State.OPEN, transitions.get(0).to());
+    }
+
+    @Test
+    void halfOpenProbesCloseItAgain() throws Exception {
+        CircuitBreaker breaker = breaker(20);
+        fail(breaker, 4);
+        Thread.sleep(30);
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        assertTrue(first >= 0 && second >= 0);
+        assertEquals(-1, breaker.tryAcquire(), "only two probes");
+
+        breaker.onResult(first, true);
+        breaker.onResult(second, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(List.of(CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN, CircuitBreaker.State.CLOSED),
+                transitions.stream().map(CircuitBreaker.Transition::to).toList());
+    }
+
+    @Test
+    void failedProbeReopensAndStaleResultsAreIgnored() throws Exception {
+        CircuitBreaker breaker = breaker(20);
+        long stale = breaker.tryAcquire();
+        fail(breaker, 4);
+        Thread.sleep(30);
+
+        long probe = breaker.tryAcquire();
+        breaker.onResult(stale, true);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+
+        breaker.onResult(probe, false);
+        assertEquals(-1, breaker.tryAcquire());
+    }
+
+    @Test
+    void releasedProbeCanBeRetried() throws Exception {
+        CircuitBreaker breaker = breaker(20);
+        fail(breaker, 4);
+        Thread.sleep(30);
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        breaker.release(second);
+
+        long retried = breaker.tryAcquire();
+        assertTrue(retried >= 0, "released slot is available again");
+        breaker.onResult(first, true);
+        breaker.onResult(retried, true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+}
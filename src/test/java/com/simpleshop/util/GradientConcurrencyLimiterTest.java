@@ -0,0 +1,48 @@
+package com.simpleshop.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradientConcurrencyLimiterTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    // Runs `rounds` batches of `limit` concurrent requests that each take rttMillis
+    private static void drive(GradientConcurrencyLimiter limiter, int rounds, long rttMillis) {
+        for (int r = 0; r < rounds; r++) {
+            int n = limiter.limit();
+            int[] slots = new int[n];
+            for (int i = 0; i < n; i++) slots[i] = limiter.tryAcquire(true);
+            for (int i = 0; i < n; i++) if (slots[i] > 0) limiter.release(slots[i], rttMillis * MILLIS);
+        }
+    }
+
+    @Test
+    void growsWhileLatencyIsFlatAndShrinksWhenItClimbs() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(20, 4, 500, 0.8);
+
+        drive(limiter, 50, 20);
+        int grown = limiter.limit();
+        assertTrue(grown > 20, "limit " + grown);
+
+        // Downstream slows down 5x: queueing, so the limit must come down
+        drive(limiter, 20, 100);
+        assertTrue(limiter.limit() < grown / 2, "limit " + limiter.limit() + " after " + grown);
+        assertTrue(limiter.limit() >= 4);
+    }
+
+    @Test
+    void lowPriorityIsShedFirst() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(10, 1, 10, 0.8);
+
+        for (int i = 0; i < 8; i++) assertTrue(limiter.tryAcquire(false) > 0);
+        assertEquals(-1, limiter.tryAcquire(false));
+        assertTrue(limiter.tryAcquire(true) > 0);
+        assertTrue(limiter.tryAcquire(true) > 0);
+        assertEquals(-1, limiter.tryAcquire(true));
+
+        limiter.release(10, -1);
+        assertTrue(limiter.tryAcquire(true) > 0);
+    }
+}
@@ -0,0 +1,75 @@
+package com.simpleshop.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedTokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void burstThenRefill() {
+        // 5 tokens, one more every 12 s
+        StripedTokenBucket buckets = new StripedTokenBucket(1024, 5, 5 / 60.0);
+        long t = 42 * SECOND;
+
+        for (int i = 0; i < 5; i++) assertEquals(0, buckets.tryAcquire("a@example.com", t));
+
+        long wait = buckets.tryAcquire("a@example.com", t);
+        assertEquals(12 * SECOND, wait, SECOND / 1000);
+        assertEquals(0, buckets.tryAcquire("b@example.com", t), "keys are independent");
+
+        assertTrue(buckets.tryAcquire("a@example.com", t + wait - SECOND) > 0);
+        assertEquals(0, buckets.tryAcquire("a@example.com", t + wait));
+    }
+
+    @Test
+    void refundGivesTheTokenBack() {
+        StripedTokenBucket buckets = new StripedTokenBucket(1024, 1, 1 / 60.0);
+
+        assertEquals(0, buckets.tryAcquire("10.0.0.1", 0));
+        assertTrue(buckets.tryAcquire("10.0.0.1", 0) > 0);
+        buckets.refund("10.0.0.1");
+        assertEquals(0, buckets.tryAcquire("10.0.0.1", 0));
+    }
+
+    @Test
+    void sprayOfNewKeysDoesNotResetAnActiveDrainedKey() {
+        StripedTokenBucket buckets = new StripedTokenBucket(1024, 3, 3 / 60.0);
+        long t = SECOND;
+
+        for (int i = 0; i < 3; i++) buckets.tryAcquire("victim", t);
+
+        // Far more keys than slots; the victim keeps retrying (and being rejected) meanwhile
+        for (int i = 0; i < 100_000; i++) {
+            t += 1000;
+            buckets.tryAcquire("spray-" + i, t);
+            if (i % 64 == 0) assertTrue(buckets.tryAcquire("victim", t) > 0, "drained key was evicted at " + i);
+        }
+        assertEquals(1024, buckets.maxKeys());
+    }
+
+    @Test
+    void concurrentAcquiresNeverOverspend() throws Exception {
+        StripedTokenBucket buckets = new StripedTokenBucket(64, 1000, 0.0001);
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    if (buckets.tryAcquire("shared") == 0) granted.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(1000, granted.get(), 1);
+    }
+}